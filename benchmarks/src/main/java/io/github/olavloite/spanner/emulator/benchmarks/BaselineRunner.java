@@ -0,0 +1,67 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import io.github.olavloite.spanner.emulator.metrics.PerformanceBaseline;
+
+/**
+ * Runs benchmarks with the normal JMH command line options and compares the results with the
+ * baseline in {@link PerformanceBaseline}. Each combination of benchmark, parameters and number of
+ * threads is a scenario. The throughput of a scenario is taken from the throughput mode and the
+ * p99 latency from the sample time mode. The runner exits with status 1 if a scenario regressed
+ * and <code>-Dbaseline=fail</code> is set.
+ *
+ * <pre>
+ * java -Dbaseline=fail -cp benchmarks/target/benchmarks.jar io.github.olavloite.spanner.emulator.benchmarks.BaselineRunner ReadBenchmark -t 8
+ * </pre>
+ */
+public class BaselineRunner {
+
+  private static final class Scenario {
+    private double throughput = Double.NaN;
+    private double p99Millis = Double.NaN;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Collection<RunResult> results = new Runner(new CommandLineOptions(args)).run();
+    Map<String, Scenario> scenarios = new TreeMap<>();
+    for (RunResult result : results) {
+      BenchmarkParams params = result.getParams();
+      Scenario scenario = scenarios.computeIfAbsent(getName(params), name -> new Scenario());
+      double nanosPerUnit = params.getTimeUnit().toNanos(1L);
+      if (params.getMode() == Mode.Throughput) {
+        scenario.throughput =
+            result.getPrimaryResult().getScore() * TimeUnit.SECONDS.toNanos(1L) / nanosPerUnit;
+      } else if (params.getMode() == Mode.SampleTime) {
+        scenario.p99Millis = result.getPrimaryResult().getStatistics().getPercentile(99D)
+            * nanosPerUnit / TimeUnit.MILLISECONDS.toNanos(1L);
+      }
+    }
+    boolean regressed = false;
+    for (Map.Entry<String, Scenario> entry : scenarios.entrySet()) {
+      regressed |= PerformanceBaseline.compare(entry.getKey(), entry.getValue().throughput,
+          entry.getValue().p99Millis) != null;
+    }
+    if (regressed && PerformanceBaseline.getMode() == PerformanceBaseline.Mode.FAIL) {
+      System.exit(1);
+    }
+  }
+
+  private static String getName(BenchmarkParams params) {
+    String benchmark = params.getBenchmark();
+    StringBuilder name = new StringBuilder(
+        benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+    for (String key : params.getParamsKeys()) {
+      name.append(' ').append(key).append('=').append(params.getParam(key));
+    }
+    return name.append(" threads=").append(params.getThreads()).toString();
+  }
+
+}
@@ -0,0 +1,86 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import com.google.api.gax.longrunning.OperationFuture;
+import com.google.cloud.spanner.BatchClient;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
+import io.github.olavloite.spanner.emulator.Fixture;
+import io.github.olavloite.spanner.emulator.TestDatabasePool;
+
+/**
+ * A database from the {@link TestDatabasePool} that is used by one benchmark trial. The database
+ * is given back to the pool when it is closed.
+ *
+ * <p>
+ * JMH runs each trial in a new JVM, so the benchmarks use the persistent pool instance
+ * <code>benchmark-instance</code> unless <code>-Dpool.instance</code> is set. A database that is
+ * acquired for a {@link Fixture} is then built once, and reused by all later trials and runs that
+ * use the same fixture. Benchmarks that write to a fixture database make the pool rebuild it.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+  private static final String DEFAULT_INSTANCE = "benchmark-instance";
+
+  static {
+    if (System.getProperty("pool.instance") == null) {
+      System.setProperty("pool.instance", DEFAULT_INSTANCE);
+    }
+  }
+
+  private final TestDatabasePool pool;
+  private final DatabaseId id;
+
+  /** @return a new empty database */
+  public static BenchmarkDatabase acquire() {
+    TestDatabasePool pool = TestDatabasePool.getInstance();
+    return new BenchmarkDatabase(pool, pool.acquire());
+  }
+
+  /** @return a database with the given fixture, which must not be changed by the benchmark */
+  public static BenchmarkDatabase acquire(Fixture fixture) {
+    TestDatabasePool pool = TestDatabasePool.getInstance();
+    return new BenchmarkDatabase(pool, pool.acquire(fixture));
+  }
+
+  private BenchmarkDatabase(TestDatabasePool pool, DatabaseId id) {
+    this.pool = pool;
+    this.id = id;
+  }
+
+  public DatabaseId getId() {
+    return id;
+  }
+
+  public Spanner getSpanner() {
+    return pool.getSpanner();
+  }
+
+  public DatabaseClient getClient() {
+    return pool.getSpanner().getDatabaseClient(id);
+  }
+
+  public BatchClient getBatchClient() {
+    return pool.getSpanner().getBatchClient(id);
+  }
+
+  public void executeDdl(String... ddl) {
+    OperationFuture<Void, UpdateDatabaseDdlMetadata> operation =
+        pool.getSpanner().getDatabaseAdminClient().updateDatabaseDdl(
+            id.getInstanceId().getInstance(), id.getDatabase(), Arrays.asList(ddl), null);
+    try {
+      operation.get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw SpannerExceptionFactory.newSpannerException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    pool.release(id);
+  }
+
+}
@@ -0,0 +1,155 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.Statement;
+import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
+import io.github.olavloite.spanner.emulator.util.BulkLoader;
+import io.github.olavloite.spanner.emulator.util.SessionPools;
+
+/**
+ * Compares the number of gRPC channels of the client at a given number of concurrent requests.
+ * Each JMH thread has one request in flight, so with <code>-t &lt;threads&gt;</code> each channel
+ * carries <code>threads / numChannels</code> concurrent HTTP/2 streams.
+ * <ul>
+ * <li><code>streamingRead</code>: a range query of 100 rows, which is a server streaming
+ * <code>ExecuteStreamingSql</code> call</li>
+ * <li><code>commit</code>: a single row <code>writeAtLeastOnce</code> of a new row, which is one
+ * unary <code>Commit</code> call</li>
+ * </ul>
+ * The session pool is sized and warmed up for the number of threads, so that waiting for sessions
+ * does not hide the channel limits.
+ *
+ * <p>
+ * {@link #main(String[])} runs the benchmark for every combination of <code>numChannels</code> and
+ * the streams per channel in <code>-Dstreams</code> (default 1,8,32,100), and takes the other JMH
+ * command line options:
+ *
+ * <pre>
+ * java -Dstreams=1,10,100 -cp benchmarks/target/benchmarks.jar io.github.olavloite.spanner.emulator.benchmarks.ChannelBenchmark -p numChannels=1,4,16
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ChannelBenchmark {
+  private static final String DEFAULT_CHANNELS = "1,2,4,8,16";
+  private static final String DEFAULT_STREAMS = "1,8,32,100";
+  private static final long ROWS = 1000L;
+  private static final long RANGE_SIZE = 100L;
+
+  @State(Scope.Benchmark)
+  public static class Channels {
+    @Param({"1", "2", "4", "8", "16"})
+    public int numChannels;
+
+    private final AtomicLong nextNumber = new AtomicLong(ROWS + 1L);
+    private BenchmarkDatabase database;
+    private Spanner spanner;
+    private DatabaseClient client;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkParams params) {
+      database = BenchmarkDatabase.acquire();
+      database.executeDdl(NumberTable.CREATE_TABLE);
+      new BulkLoader(database.getClient()).load(1L, ROWS, NumberTable::number);
+      int sessions = params.getThreads();
+      spanner = AbstractSpannerTest.createSpannerOptionsBuilder().setNumChannels(numChannels)
+          .setSessionPoolOption(
+              SessionPools.createOptions(sessions, Math.max(sessions, 400), 0.2F))
+          .build().getService();
+      client = spanner.getDatabaseClient(database.getId());
+      SessionPools.warmUp(client, sessions);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      spanner.close();
+      database.close();
+    }
+  }
+
+  @Benchmark
+  public void streamingRead(Channels channels, Blackhole blackhole) {
+    long start = ThreadLocalRandom.current().nextLong(ROWS - RANGE_SIZE) + 1L;
+    Statement statement =
+        Statement.newBuilder("select * from number where number>=@start and number<@end")
+            .bind("start").to(start).bind("end").to(start + RANGE_SIZE).build();
+    try (ResultSet rs = channels.client.singleUse().executeQuery(statement)) {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(0));
+      }
+    }
+  }
+
+  @Benchmark
+  public void commit(Channels channels) {
+    long number = channels.nextNumber.getAndIncrement();
+    channels.client.writeAtLeastOnce(Arrays.asList(NumberTable.number(number)));
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    Collection<String> channelCounts = options.getParameter("numChannels")
+        .orElse(Arrays.asList(DEFAULT_CHANNELS.split(",")));
+    List<RunResult> results = new ArrayList<>();
+    for (String streams : System.getProperty("streams", DEFAULT_STREAMS).split(",")) {
+      for (String channels : channelCounts) {
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options)
+            .param("numChannels", channels)
+            .threads(Integer.parseInt(channels) * Integer.parseInt(streams.trim()));
+        if (options.getIncludes().isEmpty()) {
+          builder.include(ChannelBenchmark.class.getSimpleName());
+        }
+        results.addAll(new Runner(builder.build()).run());
+      }
+    }
+    System.out.println();
+    System.out.printf("%-16s %8s %8s %8s %12s %12s %s%n", "Benchmark", "Channels", "Threads",
+        "Mode", "Score", "p99", "Units");
+    for (RunResult result : results) {
+      BenchmarkParams params = result.getParams();
+      String benchmark = params.getBenchmark();
+      boolean sample = params.getMode() == Mode.SampleTime;
+      System.out.printf("%-16s %8s %8d %8s %12.3f %12s %s%n",
+          benchmark.substring(benchmark.lastIndexOf('.') + 1), params.getParam("numChannels"),
+          params.getThreads(), params.getMode().shortLabel(),
+          result.getPrimaryResult().getScore(),
+          sample ? String.format("%.3f",
+              result.getPrimaryResult().getStatistics().getPercentile(99D)) : "",
+          result.getPrimaryResult().getScoreUnit());
+    }
+  }
+
+}
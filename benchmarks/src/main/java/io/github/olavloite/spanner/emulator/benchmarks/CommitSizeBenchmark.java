@@ -0,0 +1,143 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.cloud.ByteArray;
+import com.google.cloud.spanner.Mutation;
+
+/**
+ * Commits read/write transactions that insert 1, 10, 100, 1,000 or more rows, in the narrow
+ * <code>number</code> table (2 columns) or in the wide <code>parent2</code> table of
+ * <code>ComplexInterleavedTest</code> (7 columns, five of which are arrays). The
+ * <code>batch</code> parameter is <code>table:rows</code>. Cloud Spanner counts the mutations of a
+ * commit in cells and allows at most 20,000, so the largest batches are 10,000 rows of
+ * <code>number</code> and 2,857 rows of <code>parent2</code>, and larger values are rejected.
+ *
+ * <p>
+ * The mutations are built before each invocation. The latency is the time to run the transaction,
+ * which includes beginning it, and the <code>rows</code> and <code>cells</code> counters report
+ * the inserted rows and cells per millisecond. The batch size with the highest rate gives the
+ * highest ingest rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CommitSizeBenchmark {
+  private static final int MAX_CELLS = 20000;
+  private static final List<ByteArray> BYTES =
+      Arrays.asList(ByteArray.copyFrom("TEST1"), ByteArray.copyFrom("TEST2"));
+  private static final List<String> STRINGS = Arrays.asList("TEST1", "TEST2");
+
+  @State(Scope.Benchmark)
+  public static class Table {
+    @Param({"number:1", "number:10", "number:100", "number:1000", "number:10000", "parent2:1",
+        "parent2:10", "parent2:100", "parent2:1000", "parent2:2857"})
+    public String batch;
+
+    private final AtomicLong nextId = new AtomicLong(1L);
+    private String table;
+    private int rows;
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      String[] parts = batch.split(":");
+      table = parts[0];
+      rows = Integer.parseInt(parts[1]);
+      if (!"number".equals(table) && !"parent2".equals(table)) {
+        throw new IllegalArgumentException("Unknown table: " + table);
+      }
+      if (rows < 1 || rows * getColumns() > MAX_CELLS) {
+        throw new IllegalArgumentException(
+            batch + " does not insert between 1 and " + MAX_CELLS + " cells");
+      }
+      database = BenchmarkDatabase.acquire();
+      if ("number".equals(table)) {
+        database.executeDdl(NumberTable.CREATE_TABLE);
+      } else {
+        database.executeDdl(
+            "create table parent1 (parent1_id int64 not null, col1 bool, col2 bytes(16), col3 float64, col4 int64, col5 string(100)) primary key (parent1_id)",
+            "create table parent2 (parent1_id int64 not null, parent2_id string(10) not null, array1 array<bool>, array2 array<bytes(16)>, array3 array<float64>, array4 array<int64>, array5 array<string(100)>) primary key (parent1_id, parent2_id), interleave in parent parent1");
+        database.getClient().writeAtLeastOnce(Arrays.asList(Mutation.newInsertBuilder("parent1")
+            .set("parent1_id").to(1L).set("col5").to("TEST").build()));
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      database.close();
+    }
+
+    private int getColumns() {
+      return "number".equals(table) ? 2 : 7;
+    }
+
+    private Mutation newMutation() {
+      long id = nextId.getAndIncrement();
+      if ("number".equals(table)) {
+        return NumberTable.number(id);
+      }
+      return Mutation.newInsertBuilder("parent2").set("parent1_id").to(1L).set("parent2_id")
+          .to(String.valueOf(id)).set("array1").toBoolArray(new boolean[] {true, true, false})
+          .set("array2").toBytesArray(BYTES).set("array3")
+          .toFloat64Array(new double[] {1.1D, 1.2D, 1.3D}).set("array4")
+          .toInt64Array(new long[] {1L, 2L, 3L}).set("array5").toStringArray(STRINGS).build();
+    }
+  }
+
+  /** The mutations of the next transaction. */
+  @State(Scope.Thread)
+  public static class Batch {
+    private final List<Mutation> mutations = new ArrayList<>();
+
+    @Setup(Level.Invocation)
+    public void setup(Table table) {
+      mutations.clear();
+      for (int i = 0; i < table.rows; i++) {
+        mutations.add(table.newMutation());
+      }
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Inserted {
+    public long rows;
+    public long cells;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = cells = 0L;
+    }
+  }
+
+  @Benchmark
+  public void commit(Table table, Batch batch, Inserted inserted) {
+    table.database.getClient().readWriteTransaction().run(transaction -> {
+      transaction.buffer(batch.mutations);
+      return null;
+    });
+    inserted.rows += batch.mutations.size();
+    inserted.cells += batch.mutations.size() * table.getColumns();
+  }
+
+}
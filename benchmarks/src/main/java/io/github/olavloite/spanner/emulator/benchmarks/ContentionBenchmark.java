@@ -0,0 +1,111 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Struct;
+import io.github.olavloite.spanner.emulator.util.BulkLoader;
+
+/**
+ * Read-modify-write transactions on a small set of hot keys. Each transaction reads one row of the
+ * <code>counter</code> table and increments its hits column. The keys are picked with a Zipfian
+ * distribution, so with a higher <code>skew</code> more transactions conflict on the same rows. Run
+ * with <code>-t &lt;threads&gt;</code> to set the number of concurrent transactions.
+ *
+ * <p>
+ * Next to the throughput and the latency (which includes all retries), this reports the number of
+ * <code>commits</code> per second and the number of <code>retries</code> per iteration, which is
+ * the number of times that the transaction runner had to retry a transaction after it was aborted.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ContentionBenchmark {
+  private static final List<String> COLUMNS = Arrays.asList("id", "hits");
+
+  @State(Scope.Benchmark)
+  public static class HotKeys {
+    @Param({"1", "10", "100", "1000"})
+    public int hotKeys;
+
+    @Param({"0", "0.99", "1.5"})
+    public double skew;
+
+    private BenchmarkDatabase database;
+    private ZipfianGenerator keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      database = BenchmarkDatabase.acquire();
+      database.executeDdl(
+          "create table counter (id int64 not null, hits int64 not null) primary key (id)");
+      new BulkLoader(database.getClient()).load(1L, hotKeys, id -> Mutation
+          .newInsertBuilder("counter").set("id").to(id).set("hits").to(0L).build());
+      keys = new ZipfianGenerator(hotKeys, skew);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      database.close();
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Commits {
+    public long commits;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      commits = 0L;
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Retries {
+    public long retries;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      retries = 0L;
+    }
+  }
+
+  @Benchmark
+  public void readModifyWrite(HotKeys hotKeys, Commits commits, Retries retries) {
+    long id = hotKeys.keys.next(ThreadLocalRandom.current());
+    DatabaseClient client = hotKeys.database.getClient();
+    int[] attempts = new int[1];
+    client.readWriteTransaction().run(transaction -> {
+      attempts[0]++;
+      Struct row = transaction.readRow("counter", Key.of(id), COLUMNS);
+      transaction.buffer(Mutation.newUpdateBuilder("counter").set("id").to(id).set("hits")
+          .to(row.getLong(1) + 1L).build());
+      return null;
+    });
+    commits.commits++;
+    retries.retries += attempts[0] - 1;
+  }
+
+}
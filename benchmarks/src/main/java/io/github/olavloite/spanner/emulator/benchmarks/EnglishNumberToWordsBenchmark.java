@@ -0,0 +1,102 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+
+/**
+ * Compares {@link EnglishNumberToWords} with the original implementation that formatted each
+ * number with a new {@link DecimalFormat}. The numbers cycle through 1 to <code>range</code>, so
+ * small ranges measure cache hits and large ranges measure cache misses. Run with
+ * <code>-prof gc</code> to see the allocated bytes per call. Does not need an emulator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EnglishNumberToWordsBenchmark {
+  @Param({"1000", "50000", "1000000"})
+  public long range;
+
+  private long current;
+
+  private long next() {
+    current = current % range + 1L;
+    return current;
+  }
+
+  @Benchmark
+  public String original() {
+    return OriginalEnglishNumberToWords.convert(next());
+  }
+
+  @Benchmark
+  public String memoized() {
+    return EnglishNumberToWords.convert(next());
+  }
+
+  /** Copy of the original implementation of {@link EnglishNumberToWords}. */
+  private static class OriginalEnglishNumberToWords {
+    private static final String[] tensNames = {"", " ten", " twenty", " thirty", " forty",
+        " fifty", " sixty", " seventy", " eighty", " ninety"};
+
+    private static final String[] numNames = {"", " one", " two", " three", " four", " five",
+        " six", " seven", " eight", " nine", " ten", " eleven", " twelve", " thirteen",
+        " fourteen", " fifteen", " sixteen", " seventeen", " eighteen", " nineteen"};
+
+    private static String convertLessThanOneThousand(int number) {
+      String soFar;
+      if (number % 100 < 20) {
+        soFar = numNames[number % 100];
+        number /= 100;
+      } else {
+        soFar = numNames[number % 10];
+        number /= 10;
+        soFar = tensNames[number % 10] + soFar;
+        number /= 10;
+      }
+      if (number == 0)
+        return soFar;
+      return numNames[number] + " hundred" + soFar;
+    }
+
+    private static String convert(long number) {
+      if (number == 0) {
+        return "zero";
+      }
+      String snumber = new DecimalFormat("000000000000").format(number);
+      int billions = Integer.parseInt(snumber.substring(0, 3));
+      int millions = Integer.parseInt(snumber.substring(3, 6));
+      int hundredThousands = Integer.parseInt(snumber.substring(6, 9));
+      int thousands = Integer.parseInt(snumber.substring(9, 12));
+
+      String result = "";
+      if (billions != 0) {
+        result = convertLessThanOneThousand(billions) + " billion ";
+      }
+      if (millions != 0) {
+        result = result + convertLessThanOneThousand(millions) + " million ";
+      }
+      if (hundredThousands == 1) {
+        result = result + "one thousand ";
+      } else if (hundredThousands != 0) {
+        result = result + convertLessThanOneThousand(hundredThousands) + " thousand ";
+      }
+      result = result + convertLessThanOneThousand(thousands);
+      return result.replaceAll("^\\s+", "").replaceAll("\\b\\s{2,}\\b", " ");
+    }
+  }
+
+}
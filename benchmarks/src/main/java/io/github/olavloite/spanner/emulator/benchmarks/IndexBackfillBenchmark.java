@@ -0,0 +1,115 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import io.github.olavloite.spanner.emulator.util.BulkLoader;
+
+/**
+ * The cost of creating <code>idx_number_name</code> before or after the <code>number</code> table
+ * is filled. Each invocation uses a new database:
+ * <ul>
+ * <li><code>backfill</code>: creates the index on a table that already contains the rows, as
+ * <code>createIndexOnNumberName()</code> does in the tests</li>
+ * <li><code>loadWithIndex</code>: fills a table that already has the index</li>
+ * <li><code>loadWithoutIndex</code>: fills a table without the index</li>
+ * </ul>
+ * Creating the index after the load costs <code>loadWithoutIndex + backfill</code>, creating it
+ * before costs <code>loadWithIndex</code>.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexBackfillBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Size {
+    @Param({"10000", "100000", "1000000"})
+    public long rows;
+  }
+
+  /** A new database with an empty <code>number</code> table without an index. */
+  @State(Scope.Thread)
+  public static class EmptyTable {
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+      database = BenchmarkDatabase.acquire();
+      database.executeDdl(NumberTable.CREATE_TABLE);
+    }
+
+    @TearDown(Level.Invocation)
+    public void teardown() {
+      database.close();
+    }
+  }
+
+  /** A new database with an empty <code>number</code> table and <code>idx_number_name</code>. */
+  @State(Scope.Thread)
+  public static class EmptyIndexedTable {
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+      database = BenchmarkDatabase.acquire();
+      database.executeDdl(NumberTable.CREATE_TABLE, NumberTable.CREATE_INDEX);
+    }
+
+    @TearDown(Level.Invocation)
+    public void teardown() {
+      database.close();
+    }
+  }
+
+  /** A new database with a filled <code>number</code> table without an index. */
+  @State(Scope.Thread)
+  public static class FilledTable {
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Invocation)
+    public void setup(Size size) {
+      database = BenchmarkDatabase.acquire();
+      database.executeDdl(NumberTable.CREATE_TABLE);
+      load(database, size.rows);
+    }
+
+    @TearDown(Level.Invocation)
+    public void teardown() {
+      database.close();
+    }
+  }
+
+  private static void load(BenchmarkDatabase database, long rows) {
+    new BulkLoader(database.getClient()).load(1L, rows, NumberTable::number);
+  }
+
+  @Benchmark
+  public void backfill(FilledTable table) {
+    table.database.executeDdl(NumberTable.CREATE_INDEX);
+  }
+
+  @Benchmark
+  public void loadWithIndex(Size size, EmptyIndexedTable table) {
+    load(table.database, size.rows);
+  }
+
+  @Benchmark
+  public void loadWithoutIndex(Size size, EmptyTable table) {
+    load(table.database, size.rows);
+  }
+
+}
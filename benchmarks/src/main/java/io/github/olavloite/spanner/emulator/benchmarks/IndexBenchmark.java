@@ -0,0 +1,97 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+
+/**
+ * Reads through the index <code>idx_number_name</code> of the <code>number</code> table, as in
+ * <code>ReadUsingIndexTest</code>, compared with the same reads on the base table with a filter on
+ * the name column. The base table variants use a <code>FORCE_INDEX=_BASE_TABLE</code> hint, so
+ * the index is not used even if the emulator would pick it.
+ * <ul>
+ * <li><code>point</code>: one name</li>
+ * <li><code>prefix</code>: the up to 1000 names that start with "&lt;n&gt; thousand"</li>
+ * <li><code>scan</code>: all rows, in name order for the index and in key order for the base
+ * table</li>
+ * </ul>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class IndexBenchmark {
+  private static final List<String> COLUMNS = Arrays.asList("number", "name");
+
+  /** The smallest string that is larger than all strings that start with the given prefix. */
+  private static String endOfPrefix(String prefix) {
+    int last = prefix.length() - 1;
+    return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+  }
+
+  private static void consume(ResultSet rs, Blackhole blackhole) {
+    try {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(0));
+        blackhole.consume(rs.getString(1));
+      }
+    } finally {
+      rs.close();
+    }
+  }
+
+  @Benchmark
+  public void indexPoint(NumberTable table, NumberNames names, Blackhole blackhole) {
+    consume(table.getClient().singleUse().readUsingIndex("number", "idx_number_name",
+        KeySet.singleKey(Key.of(names.nextName())), COLUMNS), blackhole);
+  }
+
+  @Benchmark
+  public void baseTablePoint(NumberTable table, NumberNames names, Blackhole blackhole) {
+    consume(table.getClient().singleUse().executeQuery(Statement
+        .newBuilder("select number, name from number@{FORCE_INDEX=_BASE_TABLE} where name=@name")
+        .bind("name").to(names.nextName()).build()), blackhole);
+  }
+
+  @Benchmark
+  public void indexPrefix(NumberTable table, NumberNames names, Blackhole blackhole) {
+    String prefix = names.nextPrefix();
+    consume(table.getClient().singleUse().readUsingIndex("number", "idx_number_name",
+        KeySet.range(KeyRange.closedOpen(Key.of(prefix), Key.of(endOfPrefix(prefix)))),
+        COLUMNS), blackhole);
+  }
+
+  @Benchmark
+  public void baseTablePrefix(NumberTable table, NumberNames names, Blackhole blackhole) {
+    String prefix = names.nextPrefix();
+    consume(table.getClient().singleUse().executeQuery(Statement.newBuilder(
+        "select number, name from number@{FORCE_INDEX=_BASE_TABLE} where name>=@start and name<@end")
+        .bind("start").to(prefix).bind("end").to(endOfPrefix(prefix)).build()), blackhole);
+  }
+
+  @Benchmark
+  public void indexScan(NumberTable table, Blackhole blackhole) {
+    consume(table.getClient().singleUse().readUsingIndex("number", "idx_number_name",
+        KeySet.all(), COLUMNS), blackhole);
+  }
+
+  @Benchmark
+  public void baseTableScan(NumberTable table, Blackhole blackhole) {
+    consume(table.getClient().singleUse().read("number", KeySet.all(), COLUMNS), blackhole);
+  }
+
+}
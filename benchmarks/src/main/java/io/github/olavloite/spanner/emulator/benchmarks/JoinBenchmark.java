@@ -0,0 +1,122 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+
+/**
+ * Inner joins of the <code>address</code> and <code>person</code> tables of
+ * <code>JoinsTest</code>, with or without the index <code>idx_address_person</code>. The join is
+ * run as written, as an <code>inner hash join</code> (see <code>HashJoinFailsTest</code>) and with
+ * a <code>FORCE_INDEX</code> hint on the address table. Without the index the hint forces the base
+ * table.
+ *
+ * <p>
+ * <code>tables</code> is the number of persons and addresses as <code>persons:addresses</code>.
+ * The defaults grow both tables together from 1K to 1M rows, and combine 1K rows in one table with
+ * 1M rows in the other. The tables are shared fixtures, so each combination is loaded only once
+ * for all join variants.
+ *
+ * <p>
+ * The <code>rows</code> counter reports the joined rows per second. If the latency grows with
+ * <code>persons * addresses</code> instead of <code>persons + addresses</code>, the emulator uses
+ * a nested loop join.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class JoinBenchmark {
+  private static final String INDEX = "idx_address_person";
+
+  @State(Scope.Benchmark)
+  public static class Tables {
+    @Param({"1000:1000", "10000:10000", "100000:100000", "1000000:1000000", "1000:1000000",
+        "1000000:1000"})
+    public String tables;
+
+    @Param({"false", "true"})
+    public boolean index;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      String[] sizes = tables.split(":");
+      long persons = Long.parseLong(sizes[0]);
+      long addresses = Long.parseLong(sizes[1]);
+      database = BenchmarkDatabase.acquire(index
+          ? PersonAddressTables.fixture(persons, addresses,
+              "create index " + INDEX + " on address (person_id)")
+          : PersonAddressTables.fixture(persons, addresses));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      database.close();
+    }
+
+    private String getForceIndex() {
+      return index ? INDEX : "_BASE_TABLE";
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Rows {
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = 0L;
+    }
+  }
+
+  private static void execute(Tables tables, String sql, Rows rows, Blackhole blackhole) {
+    try (ResultSet rs =
+        tables.database.getClient().singleUse().executeQuery(Statement.of(sql))) {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(0));
+        rows.rows++;
+      }
+    }
+  }
+
+  @Benchmark
+  public void innerJoin(Tables tables, Rows rows, Blackhole blackhole) {
+    execute(tables,
+        "select address.address_id, person.last_name from address inner join person on address.person_id=person.person_id",
+        rows, blackhole);
+  }
+
+  @Benchmark
+  public void innerHashJoin(Tables tables, Rows rows, Blackhole blackhole) {
+    execute(tables,
+        "select address.address_id, person.last_name from address inner hash join person on address.person_id=person.person_id",
+        rows, blackhole);
+  }
+
+  @Benchmark
+  public void innerJoinForceIndex(Tables tables, Rows rows, Blackhole blackhole) {
+    execute(tables, String.format(
+        "select address.address_id, person.last_name from address@{FORCE_INDEX=%s} inner join person on address.person_id=person.person_id",
+        tables.getForceIndex()), rows, blackhole);
+  }
+
+}
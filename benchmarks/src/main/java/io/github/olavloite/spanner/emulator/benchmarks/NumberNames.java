@@ -0,0 +1,43 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+
+/**
+ * Names and name prefixes of random rows of a {@link NumberTable}. They are generated before the
+ * trial, so that the benchmarks that look up rows by name do not measure the conversion of numbers
+ * to words. A prefix is "&lt;n&gt; thousand", which matches up to 1000 rows.
+ */
+@State(Scope.Thread)
+public class NumberNames {
+  private static final int SIZE = 1024;
+
+  private final String[] names = new String[SIZE];
+  private final String[] prefixes = new String[SIZE];
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup(NumberTable table) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long thousands = Math.max(1L, Math.min(999L, table.rows / 1000L));
+    for (int i = 0; i < SIZE; i++) {
+      names[i] = EnglishNumberToWords.convert(random.nextLong(table.rows) + 1L);
+      prefixes[i] = EnglishNumberToWords.convert(random.nextLong(thousands) + 1L) + " thousand";
+    }
+  }
+
+  public String nextName() {
+    next = (next + 1) % SIZE;
+    return names[next];
+  }
+
+  public String nextPrefix() {
+    next = (next + 1) % SIZE;
+    return prefixes[next];
+  }
+
+}
@@ -0,0 +1,61 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
+import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+
+/**
+ * The <code>number</code> table of the test suite with an index on the name column, filled with
+ * the rows 1 to {@link #rows}.
+ */
+@State(Scope.Benchmark)
+public class NumberTable {
+  static final String CREATE_TABLE =
+      "create table number (number int64 not null, name string(100) not null) primary key (number)";
+  static final String CREATE_INDEX = "create index idx_number_name on number (name)";
+
+  @Param({"1000", "100000", "1000000"})
+  public long rows;
+
+  private BenchmarkDatabase database;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    database = create(rows);
+  }
+
+  /**
+   * @return a database with the <code>number</code> table with an index on the name column, filled
+   *         with the rows 1 to <code>rows</code>. The database is shared with the other benchmarks
+   *         and tests that use the same fixture, and must not be changed.
+   */
+  static BenchmarkDatabase create(long rows) {
+    return BenchmarkDatabase.acquire(AbstractSpannerTest.numberTableFixture(rows, true));
+  }
+
+  static Mutation number(long number) {
+    return Mutation.newInsertBuilder("number").set("number").to(number).set("name")
+        .to(EnglishNumberToWords.convert(number)).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    database.close();
+  }
+
+  public BenchmarkDatabase getDatabase() {
+    return database;
+  }
+
+  public DatabaseClient getClient() {
+    return database.getClient();
+  }
+
+}
@@ -0,0 +1,108 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+
+/**
+ * The ORDER BY / LIMIT / OFFSET query shapes of <code>SqlTest</code> on tables with 10K to 10M
+ * rows. Each query returns 10 rows. If the latency grows with the table size or with the offset,
+ * the emulator sorts and skips all rows instead of using a top-N or streaming plan.
+ * <code>orderByKey</code> sorts on the primary key, <code>orderByName</code> on a column that is
+ * only covered by a secondary index.
+ *
+ * <p>
+ * The offset is a parameter of a separate state, and the tables are shared through the fixtures of
+ * {@link NumberTable#create(long)}, so each table size is loaded only once for all offsets and
+ * queries.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class OrderByLimitBenchmark {
+  private static final int LIMIT = 10;
+
+  @State(Scope.Benchmark)
+  public static class Table {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public long rows;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      database = NumberTable.create(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      database.close();
+    }
+
+    private DatabaseClient getClient() {
+      return database.getClient();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Page {
+    @Param({"0", "100", "5000"})
+    public long offset;
+  }
+
+  private static void execute(Table table, Page page, String sql, Blackhole blackhole) {
+    Statement statement = Statement.of(String.format("%s limit %d offset %d", sql, LIMIT,
+        page.offset));
+    int count = 0;
+    try (ResultSet rs = table.getClient().singleUse().executeQuery(statement)) {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(0));
+        count++;
+      }
+    }
+    if (count != LIMIT) {
+      throw new IllegalStateException(
+          String.format("Expected %d rows, got %d for %s", LIMIT, count, statement.getSql()));
+    }
+  }
+
+  @Benchmark
+  public void orderByKey(Table table, Page page, Blackhole blackhole) {
+    execute(table, page, "select * from number order by number desc", blackhole);
+  }
+
+  @Benchmark
+  public void orderByName(Table table, Page page, Blackhole blackhole) {
+    execute(table, page, "select * from number order by name", blackhole);
+  }
+
+  @Benchmark
+  public void subSelect(Table table, Page page, Blackhole blackhole) {
+    execute(table, page, "select * from (select * from number order by number desc)", blackhole);
+  }
+
+  @Benchmark
+  public void doubleSubSelect(Table table, Page page, Blackhole blackhole) {
+    execute(table, page, String.format(
+        "select * from (select * from (select * from number where number.number>=%d) order by number desc)",
+        table.rows / 5L), blackhole);
+  }
+
+}
@@ -0,0 +1,74 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.cloud.spanner.BatchClient;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.TimestampBound;
+import io.github.olavloite.spanner.emulator.util.PartitionExecutor;
+
+/**
+ * Full scans of the <code>number</code> table with a partitioned query that is executed by a
+ * {@link PartitionExecutor}. The <code>rows</code> counter reports the scan rate in rows per
+ * second. Use <code>-p rows=5000000</code> to scan a multi-million row table.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 30)
+@Fork(1)
+public class PartitionBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Options {
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int maxPartitions;
+
+    @Param({"false", "true"})
+    public boolean reopenTransaction;
+  }
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Rows {
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = 0L;
+    }
+  }
+
+  @Benchmark
+  public void partitionedQuery(NumberTable table, Options options, Rows rows) {
+    BatchClient client = table.getDatabase().getBatchClient();
+    try (BatchReadOnlyTransaction transaction =
+        client.batchReadOnlyTransaction(TimestampBound.strong())) {
+      List<Partition> partitions = transaction.partitionQuery(
+          PartitionOptions.newBuilder().setMaxPartitions(options.maxPartitions).build(),
+          Statement.of("select number, name from number"));
+      LongAdder count = new LongAdder();
+      new PartitionExecutor(client, options.maxPartitions, options.reopenTransaction)
+          .execute(transaction, partitions, row -> count.increment());
+      rows.rows += count.sum();
+    }
+  }
+
+}
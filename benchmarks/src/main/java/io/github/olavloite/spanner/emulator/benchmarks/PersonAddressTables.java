@@ -0,0 +1,82 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import com.google.cloud.Date;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import io.github.olavloite.spanner.emulator.Fixture;
+import io.github.olavloite.spanner.emulator.util.BulkLoader;
+import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+
+/**
+ * The narrow <code>person</code> table (3 columns) and the wide <code>address</code> table (7
+ * columns) of <code>JoinsTest</code>, both filled with {@link #rows} rows.
+ */
+@State(Scope.Benchmark)
+public class PersonAddressTables {
+  static final String CREATE_PERSON =
+      "CREATE TABLE person (person_id INT64 NOT NULL, FIRST_NAME STRING(100), LAST_NAME STRING(100) NOT NULL) PRIMARY KEY (person_id)";
+  static final String CREATE_ADDRESS =
+      "create table address (address_id int64 not null, street string(100) not null, house_number int64, zipcode string(10) not null, begin_date date not null, end_date date, person_id int64) primary key (address_id)";
+
+  @Param({"10000", "100000"})
+  public long rows;
+
+  private BenchmarkDatabase database;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    database = BenchmarkDatabase.acquire(fixture(rows, rows));
+  }
+
+  /**
+   * @return a fixture with the <code>person</code> and <code>address</code> tables, the given
+   *         additional DDL statements, and the given number of persons and addresses
+   */
+  static Fixture fixture(long persons, long addresses, String... ddl) {
+    List<String> statements = new ArrayList<>(Arrays.asList(CREATE_PERSON, CREATE_ADDRESS));
+    statements.addAll(Arrays.asList(ddl));
+    return Fixture.of(statements.toArray(new String[statements.size()])).withData(
+        String.format("persons(1, %d), addresses(1, %d)", persons, addresses), client -> {
+          new BulkLoader(client).load(1L, persons, PersonAddressTables::person);
+          new BulkLoader(client).load(1L, addresses, id -> address(id, persons));
+        });
+  }
+
+  static Mutation person(long id) {
+    return Mutation.newInsertBuilder("person").set("person_id").to(id).set("first_name")
+        .to(new StringBuilder(EnglishNumberToWords.convert(id)).reverse().toString())
+        .set("last_name").to(EnglishNumberToWords.convert(id)).build();
+  }
+
+  /**
+   * An address that belongs to one of the given number of persons. Every fourth address has no
+   * person.
+   */
+  static Mutation address(long id, long persons) {
+    return Mutation.newInsertBuilder("address").set("address_id").to(id).set("street")
+        .to(new StringBuilder(EnglishNumberToWords.convert(id)).reverse().toString())
+        .set("house_number").to(id % 20).set("zipcode").to("1234TE").set("begin_date")
+        .to(Date.fromYearMonthDay(2010, 1, 1)).set("end_date")
+        .to(id % 2 == 0 ? Date.fromYearMonthDay(2018, 1, 1) : null).set("person_id")
+        .to(id % 4 == 0 ? null : (id - 1L) % persons + 1L).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    database.close();
+  }
+
+  public DatabaseClient getClient() {
+    return database.getClient();
+  }
+
+}
@@ -0,0 +1,78 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+
+/**
+ * Point reads, range reads, index reads and queries on the <code>number</code> table. Run with
+ * <code>-t &lt;threads&gt;</code> to set the number of concurrent clients. The sample time mode
+ * reports the p50/p90/p99/p999 latencies, the throughput mode reports ops/s.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ReadBenchmark {
+  private static final List<String> COLUMNS = Arrays.asList("number", "name");
+  private static final long RANGE_SIZE = 100L;
+
+  private static long randomNumber(NumberTable table) {
+    return ThreadLocalRandom.current().nextLong(table.rows) + 1L;
+  }
+
+  private static void consume(ResultSet rs, Blackhole blackhole) {
+    try {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(0));
+        blackhole.consume(rs.getString(1));
+      }
+    } finally {
+      rs.close();
+    }
+  }
+
+  @Benchmark
+  public void pointRead(NumberTable table, Blackhole blackhole) {
+    consume(table.getClient().singleUse().read("number",
+        KeySet.singleKey(Key.of(randomNumber(table))), COLUMNS), blackhole);
+  }
+
+  @Benchmark
+  public void rangeRead(NumberTable table, Blackhole blackhole) {
+    long start = randomNumber(table);
+    consume(table.getClient().singleUse().read("number",
+        KeySet.range(KeyRange.closedOpen(Key.of(start), Key.of(start + RANGE_SIZE))), COLUMNS),
+        blackhole);
+  }
+
+  @Benchmark
+  public void indexRead(NumberTable table, NumberNames names, Blackhole blackhole) {
+    consume(table.getClient().singleUse().readUsingIndex("number", "idx_number_name",
+        KeySet.singleKey(Key.of(names.nextName())), COLUMNS), blackhole);
+  }
+
+  @Benchmark
+  public void query(NumberTable table, Blackhole blackhole) {
+    consume(table.getClient().singleUse()
+        .executeQuery(Statement.newBuilder("select number, name from number where number=@number")
+            .bind("number").to(randomNumber(table)).build()),
+        blackhole);
+  }
+
+}
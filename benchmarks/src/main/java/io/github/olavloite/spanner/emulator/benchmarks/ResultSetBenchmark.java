@@ -0,0 +1,217 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+
+/**
+ * Reads all rows of the narrow <code>person</code> table and the wide <code>address</code> table
+ * through a {@link ResultSet}, using either positional or name based getters. Next to the
+ * throughput this reports:
+ * <ul>
+ * <li><code>rows</code>: rows per second</li>
+ * <li><code>readRows</code> and <code>allocatedBytes</code>: the rows that were read and the bytes
+ * that the benchmark threads allocated for them, which includes decoding the rows but not the work
+ * that gRPC does on its own threads</li>
+ * <li><code>gcCount</code> and <code>gcMillis</code>: garbage collections during the
+ * measurement</li>
+ * </ul>
+ * {@link #main(String[])} runs the benchmark and prints the allocated bytes per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ResultSetBenchmark {
+  private static final Statement SELECT_PERSON =
+      Statement.of("select person_id, first_name, last_name from person");
+  private static final Statement SELECT_ADDRESS = Statement.of(
+      "select address_id, street, house_number, zipcode, begin_date, end_date, person_id from address");
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Rows {
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = 0L;
+    }
+  }
+
+  /**
+   * The rows that were read, the bytes that the benchmark thread allocated for them and the garbage
+   * collections. These are totals, so JMH sums them over the iterations and the threads, and
+   * {@link #main(String[])} divides the bytes by the rows. The garbage collections are counted for
+   * the whole JVM, so only the first thread reports them.
+   */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Allocations {
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public long readRows;
+    public long allocatedBytes;
+    public long gcCount;
+    public long gcMillis;
+    private boolean countGc;
+    private long gcCountAtStart;
+    private long gcMillisAtStart;
+
+    @Setup(Level.Iteration)
+    public void reset(ThreadParams thread) {
+      readRows = allocatedBytes = gcCount = gcMillis = 0L;
+      countGc = thread.getThreadIndex() == 0;
+      gcCountAtStart = totalGcCount();
+      gcMillisAtStart = totalGcMillis();
+    }
+
+    private long threadAllocatedBytes() {
+      return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private void add(long rows, long allocatedBytes) {
+      this.readRows += rows;
+      this.allocatedBytes += allocatedBytes;
+      if (countGc) {
+        this.gcCount = totalGcCount() - gcCountAtStart;
+        this.gcMillis = totalGcMillis() - gcMillisAtStart;
+      }
+    }
+
+    private static long totalGcCount() {
+      long count = 0L;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+        count += Math.max(0L, gc.getCollectionCount());
+      }
+      return count;
+    }
+
+    private static long totalGcMillis() {
+      long millis = 0L;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+        millis += Math.max(0L, gc.getCollectionTime());
+      }
+      return millis;
+    }
+  }
+
+  private interface RowConsumer {
+    void consume(ResultSet rs, Blackhole blackhole);
+  }
+
+  private static void read(PersonAddressTables tables, Statement statement, RowConsumer consumer,
+      Rows rows, Allocations allocations, Blackhole blackhole) {
+    long count = 0L;
+    long allocatedAtStart = allocations.threadAllocatedBytes();
+    try (ResultSet rs = tables.getClient().singleUse().executeQuery(statement)) {
+      while (rs.next()) {
+        consumer.consume(rs, blackhole);
+        count++;
+      }
+    }
+    allocations.add(count, allocations.threadAllocatedBytes() - allocatedAtStart);
+    rows.rows += count;
+  }
+
+  @Benchmark
+  public void narrowPositional(PersonAddressTables tables, Rows rows, Allocations allocations,
+      Blackhole blackhole) {
+    read(tables, SELECT_PERSON, (rs, bh) -> {
+      bh.consume(rs.getLong(0));
+      bh.consume(rs.isNull(1) ? null : rs.getString(1));
+      bh.consume(rs.getString(2));
+    }, rows, allocations, blackhole);
+  }
+
+  @Benchmark
+  public void narrowByName(PersonAddressTables tables, Rows rows, Allocations allocations,
+      Blackhole blackhole) {
+    read(tables, SELECT_PERSON, (rs, bh) -> {
+      bh.consume(rs.getLong("person_id"));
+      bh.consume(rs.isNull("first_name") ? null : rs.getString("first_name"));
+      bh.consume(rs.getString("last_name"));
+    }, rows, allocations, blackhole);
+  }
+
+  @Benchmark
+  public void widePositional(PersonAddressTables tables, Rows rows, Allocations allocations,
+      Blackhole blackhole) {
+    read(tables, SELECT_ADDRESS, (rs, bh) -> {
+      bh.consume(rs.getLong(0));
+      bh.consume(rs.getString(1));
+      bh.consume(rs.isNull(2) ? 0L : rs.getLong(2));
+      bh.consume(rs.getString(3));
+      bh.consume(rs.getDate(4));
+      bh.consume(rs.isNull(5) ? null : rs.getDate(5));
+      bh.consume(rs.isNull(6) ? 0L : rs.getLong(6));
+    }, rows, allocations, blackhole);
+  }
+
+  @Benchmark
+  public void wideByName(PersonAddressTables tables, Rows rows, Allocations allocations,
+      Blackhole blackhole) {
+    read(tables, SELECT_ADDRESS, (rs, bh) -> {
+      bh.consume(rs.getLong("address_id"));
+      bh.consume(rs.getString("street"));
+      bh.consume(rs.isNull("house_number") ? 0L : rs.getLong("house_number"));
+      bh.consume(rs.getString("zipcode"));
+      bh.consume(rs.getDate("begin_date"));
+      bh.consume(rs.isNull("end_date") ? null : rs.getDate("end_date"));
+      bh.consume(rs.isNull("person_id") ? 0L : rs.getLong("person_id"));
+    }, rows, allocations, blackhole);
+  }
+
+  /**
+   * Runs the benchmark with the given JMH command line options and prints the bytes allocated per
+   * row of each trial.
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+    if (options.getIncludes().isEmpty()) {
+      builder.include(ResultSetBenchmark.class.getSimpleName());
+    }
+    Collection<RunResult> results = new Runner(builder.build()).run();
+    System.out.println();
+    System.out.printf("%-20s %10s %14s %10s %10s%n", "Benchmark", "Rows", "Bytes/row", "GCs",
+        "GC ms");
+    for (RunResult result : results) {
+      BenchmarkParams params = result.getParams();
+      Map<String, Result> counters = result.getSecondaryResults();
+      String benchmark = params.getBenchmark();
+      System.out.printf("%-20s %10s %14.1f %10.0f %10.0f%n",
+          benchmark.substring(benchmark.lastIndexOf('.') + 1), params.getParam("rows"),
+          counters.get("allocatedBytes").getScore() / counters.get("readRows").getScore(),
+          counters.get("gcCount").getScore(), counters.get("gcMillis").getScore());
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.Statement;
+import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
+import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+import io.github.olavloite.spanner.emulator.util.SessionPools;
+
+/**
+ * Compares session pool configurations with the workloads of <code>SimpleConcurrentTest</code>:
+ * random range reads on a <code>number</code> table with 100 rows and single row inserts.
+ * <ul>
+ * <li><code>firstQuery</code> measures the time to the first query on a new client, which
+ * includes waiting for a session if the pool has not been warmed up.</li>
+ * <li><code>read</code> and <code>write</code> measure the steady state latency. Run with
+ * <code>-t &lt;threads&gt;</code> to set the number of concurrent clients.</li>
+ * </ul>
+ * When <code>minSessions</code> ends with <code>+warmUp</code>, the pool is filled with that number
+ * of sessions before the measurement starts. An empty pool has nothing to warm up, so warm-up is
+ * part of <code>minSessions</code> instead of a separate parameter. The default parameters compare
+ * a lazily filled pool with a pool of 100 sessions with and without warm-up, with and without
+ * write-prepared sessions. Other pool sizes can be given with
+ * <code>-p minSessions=25,25+warmUp -p maxSessions=...</code>. The table is a shared fixture,
+ * which is loaded once for the read benchmarks and again after a <code>write</code> trial.
+ */
+@Fork(1)
+public class SessionPoolBenchmark {
+  private static final int ROWS = 100;
+  private static final String WARM_UP = "+warmUp";
+  private static final String SQL =
+      "select * from number where number.number>=@p1 and number.number<=@p2";
+
+  @State(Scope.Benchmark)
+  public static class PoolConfig {
+    @Param({"0", "100", "100" + WARM_UP})
+    public String minSessions;
+
+    @Param({"400"})
+    public int maxSessions;
+
+    @Param({"0", "0.2"})
+    public float writeSessionsFraction;
+
+    private int getMinSessions() {
+      return Integer.parseInt(minSessions.endsWith(WARM_UP)
+          ? minSessions.substring(0, minSessions.length() - WARM_UP.length())
+          : minSessions);
+    }
+
+    private Spanner createSpanner() {
+      return AbstractSpannerTest.createSpannerOptionsBuilder()
+          .setSessionPoolOption(
+              SessionPools.createOptions(getMinSessions(), maxSessions, writeSessionsFraction))
+          .build().getService();
+    }
+
+    private void warmUp(DatabaseClient client) {
+      if (minSessions.endsWith(WARM_UP) && getMinSessions() > 0) {
+        SessionPools.warmUp(client, getMinSessions());
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Workload {
+    private BenchmarkDatabase database;
+    private Spanner spanner;
+    private DatabaseClient client;
+    private final AtomicLong nextNumber = new AtomicLong(ROWS + 1L);
+
+    @Setup(Level.Trial)
+    public void setup(PoolConfig config) {
+      database = BenchmarkDatabase.acquire(AbstractSpannerTest.numberTableFixture(ROWS, false));
+      spanner = config.createSpanner();
+      client = spanner.getDatabaseClient(database.getId());
+      config.warmUp(client);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      spanner.close();
+      database.close();
+    }
+
+    private static Mutation insert(long number) {
+      return Mutation.newInsertBuilder("number").set("number").to(number).set("name")
+          .to(EnglishNumberToWords.convert(number)).build();
+    }
+  }
+
+  /** A new client with an empty session pool for each invocation. */
+  @State(Scope.Thread)
+  public static class NewClient {
+    private Spanner spanner;
+    private DatabaseClient client;
+
+    @Setup(Level.Invocation)
+    public void setup(PoolConfig config, Workload workload) {
+      spanner = config.createSpanner();
+      client = spanner.getDatabaseClient(workload.database.getId());
+      config.warmUp(client);
+    }
+
+    @TearDown(Level.Invocation)
+    public void teardown() {
+      spanner.close();
+    }
+  }
+
+  private static void readRandomRange(DatabaseClient client, Blackhole blackhole) {
+    int p1 = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+    int p2 = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+    Statement statement = Statement.newBuilder(SQL).bind("p1").to(Math.min(p1, p2)).bind("p2")
+        .to(Math.max(p1, p2)).build();
+    try (ResultSet rs = client.singleUse().executeQuery(statement)) {
+      while (rs.next()) {
+        blackhole.consume(rs.getLong(0));
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 20)
+  public void firstQuery(NewClient newClient, Blackhole blackhole) {
+    readRandomRange(newClient.client, blackhole);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 3, time = 5)
+  @Measurement(iterations = 5, time = 10)
+  public void read(Workload workload, Blackhole blackhole) {
+    readRandomRange(workload.client, blackhole);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 3, time = 5)
+  @Measurement(iterations = 5, time = 10)
+  public void write(Workload workload) {
+    Mutation mutation = Workload.insert(workload.nextNumber.getAndIncrement());
+    workload.client.readWriteTransaction().run(transaction -> {
+      transaction.buffer(mutation);
+      return null;
+    });
+  }
+
+}
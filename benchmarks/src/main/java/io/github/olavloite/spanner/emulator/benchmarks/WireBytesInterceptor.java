@@ -0,0 +1,59 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.concurrent.atomic.LongAdder;
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+
+/**
+ * Counts the serialized size of all request and response messages of the calls on a channel. This
+ * is the payload that gRPC sends and receives, without HTTP/2 framing, headers and TLS.
+ */
+public class WireBytesInterceptor implements ClientInterceptor {
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder received = new LongAdder();
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+      CallOptions callOptions, Channel next) {
+    return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+          @Override
+          public void onMessage(RespT message) {
+            add(received, message);
+            super.onMessage(message);
+          }
+        }, headers);
+      }
+
+      @Override
+      public void sendMessage(ReqT message) {
+        add(sent, message);
+        super.sendMessage(message);
+      }
+    };
+  }
+
+  private static void add(LongAdder counter, Object message) {
+    if (message instanceof MessageLite) {
+      counter.add(((MessageLite) message).getSerializedSize());
+    }
+  }
+
+  public long getSentBytes() {
+    return sent.sum();
+  }
+
+  public long getReceivedBytes() {
+    return received.sum();
+  }
+
+}
@@ -0,0 +1,353 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.TransactionContext;
+import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
+import io.github.olavloite.spanner.emulator.util.BulkLoader;
+import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+
+/**
+ * Writes batches of rows to the <code>number</code> table through the different write paths of
+ * the client:
+ * <ul>
+ * <li><code>MUTATION</code>: mutations buffered in a read/write transaction, as the fixtures of
+ * the tests do</li>
+ * <li><code>DML</code>: one <code>executeUpdate</code> call per row in a read/write
+ * transaction</li>
+ * <li><code>BATCH_DML</code>: one <code>batchUpdate</code> call with a statement per row in a
+ * read/write transaction</li>
+ * <li><code>WRITE_AT_LEAST_ONCE</code>: mutations that are committed without a transaction</li>
+ * </ul>
+ * <code>insert</code> writes new rows, <code>update</code> changes existing rows,
+ * <code>upsert</code> writes a batch of which half of the rows exist and <code>delete</code>
+ * removes rows that were inserted before the invocation. DML has no upsert, so the DML paths run
+ * an <code>UPDATE</code> per row and an <code>INSERT</code> for each row that was not updated.
+ *
+ * <p>
+ * The latency of an operation is the time until the batch is committed. Next to that this reports
+ * <code>rows</code> per second, and the totals <code>writtenRows</code>, <code>sentBytes</code>
+ * and <code>receivedBytes</code>, the serialized size of the gRPC messages (see
+ * {@link WireBytesInterceptor}). {@link #main(String[])} runs the benchmark and prints the bytes
+ * per row. Rows that are written to prepare an invocation are written with another client, so they
+ * are not counted.
+ *
+ * <p>
+ * <code>update</code> and <code>upsert</code> write to a table that is filled with
+ * <code>2 * batchSize</code> rows, but at least 1000, before the trial. The other operations start
+ * with an empty table.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class WritePathBenchmark {
+  private static final long MIN_EXISTING_ROWS = 1000L;
+  private static final String UPDATE = "update number set name=@name where number=@number";
+  private static final String INSERT = "insert into number (number, name) values (@number, @name)";
+  private static final String DELETE = "delete from number where number=@number";
+
+  public enum Path {
+    MUTATION, DML, BATCH_DML, WRITE_AT_LEAST_ONCE;
+  }
+
+  @State(Scope.Benchmark)
+  public static class Writes {
+    @Param({"MUTATION", "DML", "BATCH_DML", "WRITE_AT_LEAST_ONCE"})
+    public Path path;
+
+    @Param({"1", "100", "10000"})
+    public int batchSize;
+
+    private final WireBytesInterceptor wireBytes = new WireBytesInterceptor();
+    private AtomicLong nextNumber;
+    private BenchmarkDatabase database;
+    private Spanner spanner;
+    private DatabaseClient client;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      nextNumber = new AtomicLong(getExistingRows() + 1L);
+      database = BenchmarkDatabase.acquire();
+      database.executeDdl(NumberTable.CREATE_TABLE);
+      spanner = AbstractSpannerTest.createSpannerOptionsBuilder(wireBytes).build().getService();
+      client = spanner.getDatabaseClient(database.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      spanner.close();
+      database.close();
+    }
+
+    private long getExistingRows() {
+      return Math.max(MIN_EXISTING_ROWS, 2L * batchSize);
+    }
+
+    private long newNumber() {
+      return nextNumber.getAndIncrement();
+    }
+  }
+
+  /** The rows that <code>update</code> and <code>upsert</code> change. */
+  @State(Scope.Benchmark)
+  public static class ExistingRows {
+    private long rows;
+    private int batchSize;
+
+    @Setup(Level.Trial)
+    public void setup(Writes writes) {
+      rows = writes.getExistingRows();
+      batchSize = writes.batchSize;
+      new BulkLoader(writes.database.getClient()).load(1L, rows, NumberTable::number);
+    }
+
+    /** @return the first number of a random block of existing rows */
+    private long randomBlock() {
+      return ThreadLocalRandom.current().nextLong(rows - batchSize + 1L) + 1L;
+    }
+  }
+
+  /** Rows that are inserted before each invocation of <code>delete</code>. */
+  @State(Scope.Thread)
+  public static class InsertedRows {
+    private final List<Long> numbers = new ArrayList<>();
+
+    @Setup(Level.Invocation)
+    public void setup(Writes writes) {
+      numbers.clear();
+      List<Mutation> mutations = new ArrayList<>(writes.batchSize);
+      for (int i = 0; i < writes.batchSize; i++) {
+        long number = writes.newNumber();
+        numbers.add(number);
+        mutations.add(NumberTable.number(number));
+      }
+      writes.database.getClient().writeAtLeastOnce(mutations);
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Rows {
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = 0L;
+    }
+  }
+
+  /**
+   * The rows that were written and the gRPC payload bytes of the writes. These are totals, so JMH
+   * sums them over the iterations and the threads, and {@link #main(String[])} divides the bytes by
+   * the rows. The bytes are counted by one interceptor for all threads, so only the first thread
+   * reports them.
+   */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class WireBytes {
+    public long writtenRows;
+    public long sentBytes;
+    public long receivedBytes;
+    private boolean countBytes;
+    private long sentAtStart;
+    private long receivedAtStart;
+
+    @Setup(Level.Iteration)
+    public void reset(Writes writes, ThreadParams thread) {
+      writtenRows = sentBytes = receivedBytes = 0L;
+      countBytes = thread.getThreadIndex() == 0;
+      sentAtStart = writes.wireBytes.getSentBytes();
+      receivedAtStart = writes.wireBytes.getReceivedBytes();
+    }
+
+    private void add(Writes writes, long rows) {
+      writtenRows += rows;
+      if (countBytes) {
+        sentBytes = writes.wireBytes.getSentBytes() - sentAtStart;
+        receivedBytes = writes.wireBytes.getReceivedBytes() - receivedAtStart;
+      }
+    }
+  }
+
+  private static Statement statement(String sql, long number, String name) {
+    Statement.Builder builder = Statement.newBuilder(sql).bind("number").to(number);
+    return name == null ? builder.build() : builder.bind("name").to(name).build();
+  }
+
+  private static String newName(long number) {
+    return new StringBuilder(EnglishNumberToWords.convert(number)).reverse().toString();
+  }
+
+  /**
+   * Writes the mutations or the statements, depending on the path of the benchmark. If
+   * <code>inserts</code> is not <code>null</code>, the insert statement of each statement that
+   * updated no rows is executed after the statements.
+   */
+  private static void write(Writes writes, List<Mutation> mutations, List<Statement> statements,
+      List<Statement> inserts, Rows rows, WireBytes wireBytes) {
+    switch (writes.path) {
+      case MUTATION:
+        writes.client.readWriteTransaction().run(transaction -> {
+          transaction.buffer(mutations);
+          return null;
+        });
+        break;
+      case WRITE_AT_LEAST_ONCE:
+        writes.client.writeAtLeastOnce(mutations);
+        break;
+      case DML:
+        writes.client.readWriteTransaction().run(transaction -> {
+          for (int i = 0; i < statements.size(); i++) {
+            if (transaction.executeUpdate(statements.get(i)) == 0L && inserts != null) {
+              transaction.executeUpdate(inserts.get(i));
+            }
+          }
+          return null;
+        });
+        break;
+      case BATCH_DML:
+        writes.client.readWriteTransaction().run(transaction -> {
+          long[] counts = transaction.batchUpdate(statements);
+          if (inserts != null) {
+            insertMissing(transaction, counts, inserts);
+          }
+          return null;
+        });
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown path: " + writes.path);
+    }
+    rows.rows += mutations.size();
+    wireBytes.add(writes, mutations.size());
+  }
+
+  private static void insertMissing(TransactionContext transaction, long[] counts,
+      List<Statement> inserts) {
+    List<Statement> missing = new ArrayList<>();
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] == 0L) {
+        missing.add(inserts.get(i));
+      }
+    }
+    if (!missing.isEmpty()) {
+      transaction.batchUpdate(missing);
+    }
+  }
+
+  @Benchmark
+  public void insert(Writes writes, Rows rows, WireBytes wireBytes) {
+    List<Mutation> mutations = new ArrayList<>(writes.batchSize);
+    List<Statement> statements = new ArrayList<>(writes.batchSize);
+    for (int i = 0; i < writes.batchSize; i++) {
+      long number = writes.newNumber();
+      String name = EnglishNumberToWords.convert(number);
+      mutations.add(NumberTable.number(number));
+      statements.add(statement(INSERT, number, name));
+    }
+    write(writes, mutations, statements, null, rows, wireBytes);
+  }
+
+  @Benchmark
+  public void update(Writes writes, ExistingRows existing, Rows rows, WireBytes wireBytes) {
+    long start = existing.randomBlock();
+    List<Mutation> mutations = new ArrayList<>(writes.batchSize);
+    List<Statement> statements = new ArrayList<>(writes.batchSize);
+    for (long number = start; number < start + writes.batchSize; number++) {
+      String name = newName(number);
+      mutations.add(Mutation.newUpdateBuilder("number").set("number").to(number).set("name")
+          .to(name).build());
+      statements.add(statement(UPDATE, number, name));
+    }
+    write(writes, mutations, statements, null, rows, wireBytes);
+  }
+
+  @Benchmark
+  public void upsert(Writes writes, ExistingRows existing, Rows rows, WireBytes wireBytes) {
+    long start = existing.randomBlock();
+    List<Mutation> mutations = new ArrayList<>(writes.batchSize);
+    List<Statement> updates = new ArrayList<>(writes.batchSize);
+    List<Statement> inserts = new ArrayList<>(writes.batchSize);
+    for (int i = 0; i < writes.batchSize; i++) {
+      long number = i % 2 == 0 ? start + i : writes.newNumber();
+      String name = newName(number);
+      mutations.add(Mutation.newInsertOrUpdateBuilder("number").set("number").to(number)
+          .set("name").to(name).build());
+      updates.add(statement(UPDATE, number, name));
+      inserts.add(statement(INSERT, number, name));
+    }
+    write(writes, mutations, updates, inserts, rows, wireBytes);
+  }
+
+  @Benchmark
+  public void delete(Writes writes, InsertedRows inserted, Rows rows, WireBytes wireBytes) {
+    List<Mutation> mutations = new ArrayList<>(writes.batchSize);
+    List<Statement> statements = new ArrayList<>(writes.batchSize);
+    for (long number : inserted.numbers) {
+      mutations.add(Mutation.delete("number", Key.of(number)));
+      statements.add(statement(DELETE, number, null));
+    }
+    write(writes, mutations, statements, null, rows, wireBytes);
+  }
+
+  /**
+   * Runs the benchmark with the given JMH command line options and prints the gRPC payload bytes
+   * per written row of each trial.
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+    if (options.getIncludes().isEmpty()) {
+      builder.include(WritePathBenchmark.class.getSimpleName());
+    }
+    Collection<RunResult> results = new Runner(builder.build()).run();
+    System.out.println();
+    System.out.printf("%-16s %-20s %10s %6s %14s %14s%n", "Benchmark", "Path", "Batch size", "Mode",
+        "Sent/row", "Received/row");
+    for (RunResult result : results) {
+      BenchmarkParams params = result.getParams();
+      Map<String, Result> counters = result.getSecondaryResults();
+      double rows = counters.get("writtenRows").getScore();
+      String benchmark = params.getBenchmark();
+      System.out.printf("%-16s %-20s %10s %6s %14.1f %14.1f%n",
+          benchmark.substring(benchmark.lastIndexOf('.') + 1), params.getParam("path"),
+          params.getParam("batchSize"), params.getMode().shortLabel(),
+          counters.get("sentBytes").getScore() / rows,
+          counters.get("receivedBytes").getScore() / rows);
+    }
+  }
+
+}
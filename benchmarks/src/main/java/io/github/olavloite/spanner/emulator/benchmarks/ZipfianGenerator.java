@@ -0,0 +1,40 @@
+package io.github.olavloite.spanner.emulator.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates the numbers 1 to n with a Zipfian distribution: number k is picked with a probability
+ * proportional to 1 / k<sup>skew</sup>. A skew of 0 gives a uniform distribution, and the higher
+ * the skew, the more often the lowest numbers are picked.
+ */
+public class ZipfianGenerator {
+  private final double[] cumulative;
+
+  public ZipfianGenerator(int n, double skew) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("n must be positive");
+    }
+    if (skew < 0D) {
+      throw new IllegalArgumentException("skew may not be negative");
+    }
+    cumulative = new double[n];
+    double sum = 0D;
+    for (int k = 1; k <= n; k++) {
+      sum += 1D / Math.pow(k, skew);
+      cumulative[k - 1] = sum;
+    }
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= sum;
+    }
+  }
+
+  public long next(Random random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return Math.min(index, cumulative.length - 1) + 1L;
+  }
+
+}
@@ -1,42 +1,38 @@
 package io.github.olavloite.spanner.emulator;
 
-import static org.junit.Assert.assertTrue;
+import java.net.URI;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Random;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
-import com.google.api.gax.longrunning.OperationFuture;
-import com.google.api.gax.paging.Page;
-import com.google.auth.oauth2.GoogleCredentials;
+import org.junit.ClassRule;
+import org.junit.Rule;
 import com.google.cloud.spanner.BatchClient;
-import com.google.cloud.spanner.Database;
 import com.google.cloud.spanner.DatabaseAdminClient;
 import com.google.cloud.spanner.DatabaseClient;
-import com.google.cloud.spanner.ErrorCode;
-import com.google.cloud.spanner.Instance;
+import com.google.cloud.spanner.DatabaseId;
 import com.google.cloud.spanner.InstanceAdminClient;
-import com.google.cloud.spanner.InstanceConfigId;
-import com.google.cloud.spanner.InstanceId;
-import com.google.cloud.spanner.InstanceInfo;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Spanner;
-import com.google.cloud.spanner.SpannerException;
-import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.SpannerOptions;
 import com.google.cloud.spanner.Statement;
-import com.google.cloud.spanner.TransactionContext;
-import com.google.cloud.spanner.TransactionRunner;
-import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
-import com.google.spanner.admin.database.v1.CreateDatabaseMetadata;
-import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
-import com.google.spanner.admin.instance.v1.CreateInstanceMetadata;
+import com.google.cloud.spanner.spi.v1.SpannerInterceptorProvider;
+import io.github.olavloite.spanner.emulator.metrics.RpcLatencies;
+import io.github.olavloite.spanner.emulator.metrics.RpcLatencyInterceptor;
+import io.github.olavloite.spanner.emulator.metrics.TestTagRule;
+import io.github.olavloite.spanner.emulator.metrics.TestTimings;
+import io.github.olavloite.spanner.emulator.util.BulkLoader;
 import io.github.olavloite.spanner.emulator.util.CloudSpannerOAuthUtil;
+import io.github.olavloite.spanner.emulator.util.DdlBatch;
 import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+import io.github.olavloite.spanner.emulator.util.NetworkProfile;
+import io.github.olavloite.spanner.emulator.util.SessionPools;
+import io.github.olavloite.spanner.emulator.util.ShapingProxy;
+import io.grpc.ClientInterceptor;
 import io.grpc.Status;
 
 public abstract class AbstractSpannerTest {
@@ -49,13 +45,32 @@ public abstract class AbstractSpannerTest {
   private static final String DEFAULT_HOST = "https://emulator.googlecloudspanner.com:8443";
   private static final String DEFAULT_PROJECT_ID = "test-project-000001";
   private static final String DEFAULT_KEY_FILE = "emulator.json";
-  protected static String INSTANCE_ID;
-  protected static final String DATABASE_ID = "test-database";
 
-  private static InstanceAdminClient instanceAdminClient;
-  private static DatabaseAdminClient databaseAdminClient;
-  private static DatabaseClient databaseClient;
-  private static BatchClient batchClient;
+  private static final String CREATE_NUMBER_TABLE =
+      "create table number (number int64 not null, name string(100) not null) primary key (number)";
+  private static final String CREATE_INDEX_NUMBER_NAME =
+      "create index idx_number_name on number (name)";
+
+  /**
+   * The database of the test class that is running on the current thread. Test classes may run in
+   * parallel, but each test class runs all its setup, test and teardown methods on one thread. The
+   * value is inherited by threads that are started by a test, such as the worker threads in
+   * {@link io.github.olavloite.spanner.emulator.concurrent.SimpleConcurrentTest}.
+   */
+  private static final InheritableThreadLocal<DatabaseId> CURRENT_DATABASE =
+      new InheritableThreadLocal<>();
+
+  /** The DDL statements of each test database that have not yet been executed. */
+  private static final Map<DatabaseId, DdlBatch> DDL_BATCHES = new ConcurrentHashMap<>();
+
+  /** The proxy that shapes the traffic to the host when a network profile is set. */
+  private static ShapingProxy shapingProxy;
+
+  @ClassRule
+  public static final TestTagRule CLASS_TAG = new TestTagRule();
+
+  @Rule
+  public final TestTagRule methodTag = new TestTagRule();
 
   public static boolean isRunningOnEmulator() {
     return !CLOUDSPANNER_HOST.equalsIgnoreCase(getHost());
@@ -73,111 +88,180 @@ public abstract class AbstractSpannerTest {
     return System.getProperty("keyfile", DEFAULT_KEY_FILE);
   }
 
+  /**
+   * Creates a {@link SpannerOptions.Builder} for the configured host. The builder connects over
+   * plain text without credentials when the host uses the <code>http://</code> scheme (for example
+   * <code>-Dhost=http://localhost:9010</code>), and to the remote host using the shared credentials
+   * of the key file otherwise. The session pool is configured by
+   * {@link SessionPools#createOptions()}. RPC latencies are recorded in {@link RpcLatencies} if that
+   * or {@link TestTimings} is enabled. When a {@link NetworkProfile} is set, the client connects to
+   * the remote host through a {@link ShapingProxy}. The given interceptors are added after the
+   * default interceptors of the client.
+   */
+  public static SpannerOptions.Builder createSpannerOptionsBuilder(
+      ClientInterceptor... extraInterceptors) {
+    SpannerOptions.Builder builder = SpannerOptions.newBuilder().setProjectId(getProject())
+        .setSessionPoolOption(SessionPools.createOptions());
+    SpannerInterceptorProvider interceptors = SpannerInterceptorProvider.createDefault();
+    if (RpcLatencies.isEnabled() || TestTimings.isEnabled()) {
+      interceptors = interceptors.with(new RpcLatencyInterceptor());
+    }
+    for (ClientInterceptor interceptor : extraInterceptors) {
+      interceptors = interceptors.with(interceptor);
+    }
+    builder.setHost(getHost())
+        .setCredentials(CloudSpannerOAuthUtil.getCredentials(getHost(), getKeyFile()))
+        .setInterceptorProvider(interceptors);
+    boolean plainText = CloudSpannerOAuthUtil.isPlainText(getHost());
+    NetworkProfile profile = NetworkProfile.fromSystemProperties();
+    URI uri = URI.create(getHost());
+    String authority = uri.getAuthority();
+    if (profile != null) {
+      builder.setHost(uri.getScheme() + "://localhost:" + getShapingProxy(uri, profile).getPort());
+    }
+    if (plainText || profile != null) {
+      builder.setChannelConfigurator(channel -> {
+        if (plainText) {
+          channel.usePlaintext();
+        }
+        if (profile != null) {
+          channel.overrideAuthority(authority);
+        }
+        return channel;
+      });
+    }
+    return builder;
+  }
+
+  /**
+   * Returns the JVM-wide {@link ShapingProxy} for the given host. The client connects to the proxy
+   * on localhost, but uses the authority of the host for TLS and the request headers.
+   */
+  private static synchronized ShapingProxy getShapingProxy(URI uri, NetworkProfile profile) {
+    if (shapingProxy == null) {
+      int port = uri.getPort() == -1 ? ("http".equals(uri.getScheme()) ? 80 : 443) : uri.getPort();
+      shapingProxy = ShapingProxy.start(uri.getHost(), port, profile);
+    }
+    return shapingProxy;
+  }
+
+  /**
+   * Closes the {@link ShapingProxy} if one was started. This is called by the
+   * {@link TestDatabasePool} when the JVM exits, after it has dropped the test instance through
+   * the proxy.
+   */
+  static synchronized void closeShapingProxy() {
+    if (shapingProxy != null) {
+      shapingProxy.close();
+      shapingProxy = null;
+    }
+  }
+
   @BeforeClass
-  public static void setup() throws InterruptedException, ExecutionException {
-    INSTANCE_ID = "test-instance-" + new Random().nextInt(100000000);
-    log.info("Setting up test with instance id " + INSTANCE_ID);
-    String credentialsPath = getKeyFile();
-    GoogleCredentials credentials = CloudSpannerOAuthUtil.getCredentialsFromFile(credentialsPath);
-    log.info("Creating Spanner service");
-    SpannerOptions options = SpannerOptions.newBuilder().setProjectId(getProject())
-        .setHost(getHost()).setCredentials(credentials).build();
-    Spanner spanner = options.getService();
-    instanceAdminClient = spanner.getInstanceAdminClient();
-    databaseAdminClient = spanner.getDatabaseAdminClient();
-
-    // First delete anything that might be there
-    log.info("Deleting existing databases");
-    clearCurrentInstanceAndDatabases();
-    // Then create a new test instance
-    log.info("Creating new test instance");
-    OperationFuture<Instance, CreateInstanceMetadata> createInstance =
-        instanceAdminClient.createInstance(InstanceInfo
-            .newBuilder(InstanceId.of(getProject(), INSTANCE_ID)).setDisplayName("Test Instance")
-            .setInstanceConfigId(InstanceConfigId.of(getProject(), "regional-europe-west1"))
-            .setNodeCount(1).build());
-    createInstance.get();
-    assertTrue(createInstance.isDone());
-    log.info("Creating new test database");
-    OperationFuture<Database, CreateDatabaseMetadata> createDatabase =
-        databaseAdminClient.createDatabase(INSTANCE_ID, DATABASE_ID, Collections.emptyList());
-    Database database = createDatabase.get();
-    databaseClient = spanner.getDatabaseClient(database.getId());
-    batchClient = spanner.getBatchClient(database.getId());
-    log.info("Finished setting up test");
+  public static void setup() {
+    log.info("Setting up test");
+    DatabaseId databaseId = TestDatabasePool.getInstance().acquire();
+    useDatabase(databaseId);
+    log.info("Finished setting up test with database " + databaseId.getDatabase());
+  }
+
+  private static void useDatabase(DatabaseId databaseId) {
+    CURRENT_DATABASE.set(databaseId);
+    DDL_BATCHES.put(databaseId, new DdlBatch(getDatabaseAdminClient(), databaseId));
+    if (SessionPools.isWarmUpEnabled()) {
+      int sessions = getSpanner().getOptions().getSessionPoolOptions().getMinSessions();
+      long nanos = SessionPools.warmUp(getSpanner().getDatabaseClient(databaseId), sessions);
+      log.info(String.format("Warmed up %d sessions for %s in %d ms", sessions,
+          databaseId.getDatabase(), nanos / 1000000L));
+    }
   }
 
   @AfterClass
   public static void teardown() {
-    clearCurrentInstanceAndDatabases();
-    log.info("Dropped instance " + INSTANCE_ID);
-    INSTANCE_ID = null;
-  }
-
-  private static void clearCurrentInstanceAndDatabases() {
-    try {
-      Instance instance = instanceAdminClient.getInstance(INSTANCE_ID);
-      Page<Database> databases = databaseAdminClient.listDatabases(instance.getId().getInstance());
-      databases.iterateAll().forEach(d -> d.drop());
-      instanceAdminClient.deleteInstance(instance.getId().getInstance());
-    } catch (SpannerException e) {
-      if (e.getErrorCode() != ErrorCode.NOT_FOUND) {
-        throw e;
-      }
+    DatabaseId databaseId = CURRENT_DATABASE.get();
+    if (databaseId != null) {
+      releaseDatabase(databaseId);
+    }
+    CURRENT_DATABASE.remove();
+  }
+
+  private static void releaseDatabase(DatabaseId databaseId) {
+    DdlBatch ddl = DDL_BATCHES.remove(databaseId);
+    if (ddl != null && ddl.getTimings().getBatches() > 0L) {
+      log.info("Schema changes on " + databaseId.getDatabase() + ": " + ddl.getTimings());
+    }
+    TestDatabasePool.getInstance().release(databaseId);
+    log.info("Released database " + databaseId.getDatabase());
+  }
+
+  /**
+   * Replaces the database of the test class with a database that contains the given fixture. The
+   * database may have been built for an earlier test class, so the test class must not change the
+   * schema or the data of the fixture.
+   */
+  protected static void useFixture(Fixture fixture) {
+    awaitDdl();
+    releaseDatabase(getDatabaseId());
+    DatabaseId databaseId = TestDatabasePool.getInstance().acquire(fixture);
+    useDatabase(databaseId);
+    log.info("Using fixture database " + databaseId.getDatabase());
+  }
+
+  /**
+   * @return a fixture with the <code>number</code> table filled with the rows 1 to
+   *         <code>rows</code>, and optionally the index <code>idx_number_name</code>
+   */
+  public static Fixture numberTableFixture(long rows, boolean createIndex) {
+    Fixture fixture = createIndex ? Fixture.of(CREATE_NUMBER_TABLE, CREATE_INDEX_NUMBER_NAME)
+        : Fixture.of(CREATE_NUMBER_TABLE);
+    return fixture.withData(String.format("numbers(1, %d)", rows),
+        client -> insertTestNumbers(client, 1L, rows));
+  }
+
+  private static Spanner getSpanner() {
+    return TestDatabasePool.getInstance().getSpanner();
+  }
+
+  protected static DatabaseId getDatabaseId() {
+    DatabaseId databaseId = CURRENT_DATABASE.get();
+    if (databaseId == null) {
+      throw new IllegalStateException("No test database has been set up for the current thread");
     }
+    return databaseId;
+  }
+
+  protected static String getInstanceId() {
+    return getDatabaseId().getInstanceId().getInstance();
   }
 
   protected static InstanceAdminClient getInstanceAdminClient() {
-    return instanceAdminClient;
+    return getSpanner().getInstanceAdminClient();
   }
 
   protected static DatabaseAdminClient getDatabaseAdminClient() {
-    return databaseAdminClient;
+    return getSpanner().getDatabaseAdminClient();
   }
 
   protected static DatabaseClient getDatabaseClient() {
-    return databaseClient;
+    awaitDdl();
+    return getSpanner().getDatabaseClient(getDatabaseId());
   }
 
   protected static BatchClient getBatchClient() {
-    return batchClient;
+    awaitDdl();
+    return getSpanner().getBatchClient(getDatabaseId());
   }
 
   protected static void createNumberTable() {
-    OperationFuture<Void, UpdateDatabaseDdlMetadata> operation =
-        getDatabaseAdminClient().updateDatabaseDdl(INSTANCE_ID, DATABASE_ID, Arrays.asList(
-            "create table number (number int64 not null, name string(100) not null) primary key (number)"),
-            null);
-    try {
-      operation.get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw SpannerExceptionFactory.newSpannerException(e);
-    }
-    assertTrue(operation.isDone());
+    executeDdl(CREATE_NUMBER_TABLE);
   }
 
   protected static void createIndexOnNumberName() {
-    OperationFuture<Void, UpdateDatabaseDdlMetadata> operation =
-        getDatabaseAdminClient().updateDatabaseDdl(INSTANCE_ID, DATABASE_ID,
-            Arrays.asList("create index idx_number_name on number (name)"), null);
-    try {
-      operation.get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw SpannerExceptionFactory.newSpannerException(e);
-    }
-    assertTrue(operation.isDone());
+    executeDdl(CREATE_INDEX_NUMBER_NAME);
   }
 
   protected static void dropIndexNumberName() {
-    OperationFuture<Void, UpdateDatabaseDdlMetadata> operation =
-        getDatabaseAdminClient().updateDatabaseDdl(INSTANCE_ID, DATABASE_ID,
-            Arrays.asList("drop index idx_number_name"), null);
-    try {
-      operation.get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw SpannerExceptionFactory.newSpannerException(e);
-    }
-    assertTrue(operation.isDone());
+    executeDdl("drop index idx_number_name");
   }
 
   protected static void insertTestNumbers(long rows) {
@@ -185,44 +269,63 @@ public abstract class AbstractSpannerTest {
   }
 
   protected static void insertTestNumbers(long start, long noOfRows) {
-    TransactionRunner runner = getDatabaseClient().readWriteTransaction();
-    runner.run(new TransactionCallable<Void>() {
-      @Override
-      public Void run(TransactionContext transaction) throws Exception {
-        for (long counter = start; counter < (start + noOfRows); counter++) {
-          Mutation mutation = Mutation.newInsertBuilder("number").set("number").to(counter)
-              .set("name").to(EnglishNumberToWords.convert(counter)).build();
-          transaction.buffer(mutation);
-        }
-        return null;
-      }
-    });
+    insertTestNumbers(getDatabaseClient(), start, noOfRows);
+  }
+
+  private static void insertTestNumbers(DatabaseClient client, long start, long noOfRows) {
+    new BulkLoader(client).load(start, noOfRows,
+        counter -> Mutation.newInsertBuilder("number").set("number").to(counter).set("name")
+            .to(EnglishNumberToWords.convert(counter)).build());
   }
 
   protected static void dropNumberTable() {
-    OperationFuture<Void, UpdateDatabaseDdlMetadata> operation = getDatabaseAdminClient()
-        .updateDatabaseDdl(INSTANCE_ID, DATABASE_ID, Arrays.asList("drop table number"), null);
-    try {
-      operation.get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw SpannerExceptionFactory.newSpannerException(e);
-    }
-    assertTrue(operation.isDone());
+    executeDdl("drop table number");
   }
 
   protected static void executeDdl(String ddl) {
     executeDdl(Arrays.asList(ddl));
   }
 
+  /**
+   * Executes the given DDL statements as one batch and waits for them to finish. Statements that
+   * were added with {@link #addDdl(String...)} are executed first.
+   */
   protected static void executeDdl(Iterable<String> ddl) {
-    OperationFuture<Void, UpdateDatabaseDdlMetadata> operation =
-        getDatabaseAdminClient().updateDatabaseDdl(INSTANCE_ID, DATABASE_ID, ddl, null);
-    try {
-      operation.get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw SpannerExceptionFactory.newSpannerException(e);
+    getDdlBatch().add(ddl).execute();
+  }
+
+  /**
+   * Adds DDL statements to the schema of the test class without executing them. All added
+   * statements are submitted as one batch by {@link #submitDdl()}, or when the database is first
+   * used. Use this in <code>@BeforeClass</code> methods that create several tables, instead of
+   * waiting for a separate schema change for each table.
+   */
+  protected static void addDdl(String... ddl) {
+    getDdlBatch().add(ddl);
+  }
+
+  /**
+   * Submits the statements that were added with {@link #addDdl(String...)} without waiting for
+   * them to finish.
+   */
+  protected static void submitDdl() {
+    getDdlBatch().submit();
+  }
+
+  /** Executes the statements that were added with {@link #addDdl(String...)}, if any. */
+  protected static void awaitDdl() {
+    DdlBatch ddl = DDL_BATCHES.get(getDatabaseId());
+    if (ddl != null && ddl.hasWork()) {
+      ddl.execute();
+    }
+  }
+
+  private static DdlBatch getDdlBatch() {
+    DdlBatch ddl = DDL_BATCHES.get(getDatabaseId());
+    if (ddl == null) {
+      throw new IllegalStateException("No test database has been set up for the current thread");
     }
-    assertTrue(operation.isDone());
+    return ddl;
   }
 
   protected boolean tableExists(String name) {
@@ -36,8 +36,8 @@ public class CompositePrimaryKeySpannerTest extends AbstractSpannerTest {
   private void createTestTable() {
     String sql =
         "CREATE TABLE number (number int64 not null, name string(100) not null, description string(max)) primary key (number, name)";
-    OperationFuture<Void, UpdateDatabaseDdlMetadata> op = getDatabaseAdminClient()
-        .updateDatabaseDdl(INSTANCE_ID, DATABASE_ID, Arrays.asList(sql), null);
+    OperationFuture<Void, UpdateDatabaseDdlMetadata> op = getDatabaseAdminClient().updateDatabaseDdl(
+        getInstanceId(), getDatabaseId().getDatabase(), Arrays.asList(sql), null);
     try {
       op.get();
     } catch (InterruptedException | ExecutionException e) {
@@ -13,7 +13,6 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import com.google.api.gax.longrunning.OperationFuture;
 import com.google.api.gax.paging.Page;
-import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.spanner.Database;
 import com.google.cloud.spanner.DatabaseAdminClient;
 import com.google.cloud.spanner.Instance;
@@ -26,7 +25,6 @@ import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.SpannerOptions;
 import com.google.spanner.admin.database.v1.CreateDatabaseMetadata;
 import com.google.spanner.admin.instance.v1.CreateInstanceMetadata;
-import io.github.olavloite.spanner.emulator.util.CloudSpannerOAuthUtil;
 
 public class DatabaseAdminImplTest {
   private static InstanceAdminClient instanceAdminClient;
@@ -37,11 +35,7 @@ public class DatabaseAdminImplTest {
 
   @BeforeClass
   public static void setup() throws InterruptedException, ExecutionException {
-    String credentialsPath = AbstractSpannerTest.getKeyFile();
-    GoogleCredentials credentials = CloudSpannerOAuthUtil.getCredentialsFromFile(credentialsPath);
-    SpannerOptions options =
-        SpannerOptions.newBuilder().setProjectId(AbstractSpannerTest.getProject())
-            .setHost(AbstractSpannerTest.getHost()).setCredentials(credentials).build();
+    SpannerOptions options = AbstractSpannerTest.createSpannerOptionsBuilder().build();
     Spanner spanner = options.getService();
     instanceAdminClient = spanner.getInstanceAdminClient();
     databaseAdminClient = spanner.getDatabaseAdminClient();
@@ -0,0 +1,67 @@
+package io.github.olavloite.spanner.emulator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import com.google.cloud.spanner.DatabaseClient;
+
+/**
+ * A schema and the data in it that a test class needs. Fixtures are identified by their key, which
+ * consists of the DDL statements and a description of the generated data. Two fixtures with the
+ * same key must produce the same database, as the {@link TestDatabasePool} may hand out a database
+ * that was built for one fixture to a test class that asks for the other.
+ */
+public final class Fixture {
+  private final List<String> ddl;
+  private final String data;
+  private final Consumer<DatabaseClient> loader;
+
+  public static Fixture of(String... ddl) {
+    return new Fixture(Arrays.asList(ddl), "", client -> {
+    });
+  }
+
+  private Fixture(List<String> ddl, String data, Consumer<DatabaseClient> loader) {
+    this.ddl = Collections.unmodifiableList(ddl);
+    this.data = data;
+    this.loader = loader;
+  }
+
+  /**
+   * @param description the parameters of the generated data, for example
+   *        <code>numbers(1, 1000)</code>. The description is part of the key of the fixture.
+   * @param loader loads the data into a database that has the schema of the fixture
+   */
+  public Fixture withData(String description, Consumer<DatabaseClient> loader) {
+    return new Fixture(ddl, description, loader);
+  }
+
+  public List<String> getDdl() {
+    return ddl;
+  }
+
+  void load(DatabaseClient client) {
+    loader.accept(client);
+  }
+
+  public String getKey() {
+    return String.join(";\n", ddl) + "\n-- " + data;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Fixture && ((Fixture) o).getKey().equals(getKey());
+  }
+
+  @Override
+  public int hashCode() {
+    return getKey().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return getKey();
+  }
+
+}
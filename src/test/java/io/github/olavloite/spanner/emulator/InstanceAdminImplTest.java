@@ -12,7 +12,6 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import com.google.api.gax.longrunning.OperationFuture;
 import com.google.api.gax.paging.Page;
-import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.Instance;
 import com.google.cloud.spanner.InstanceAdminClient;
@@ -28,7 +27,6 @@ import com.google.cloud.spanner.SpannerOptions;
 import com.google.common.collect.Lists;
 import com.google.spanner.admin.instance.v1.CreateInstanceMetadata;
 import com.google.spanner.admin.instance.v1.UpdateInstanceMetadata;
-import io.github.olavloite.spanner.emulator.util.CloudSpannerOAuthUtil;
 
 public class InstanceAdminImplTest {
   private static InstanceAdminClient instanceAdminClient;
@@ -36,11 +34,7 @@ public class InstanceAdminImplTest {
 
   @BeforeClass
   public static void setup() {
-    String credentialsPath = AbstractSpannerTest.getKeyFile();
-    GoogleCredentials credentials = CloudSpannerOAuthUtil.getCredentialsFromFile(credentialsPath);
-    SpannerOptions options =
-        SpannerOptions.newBuilder().setProjectId(AbstractSpannerTest.getProject())
-            .setCredentials(credentials).setHost(AbstractSpannerTest.getHost()).build();
+    SpannerOptions options = AbstractSpannerTest.createSpannerOptionsBuilder().build();
     Spanner spanner = options.getService();
     instanceAdminClient = spanner.getInstanceAdminClient();
   }
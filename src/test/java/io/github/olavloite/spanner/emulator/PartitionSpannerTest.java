@@ -4,7 +4,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import java.util.Arrays;
 import java.util.List;
-import org.junit.AfterClass;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import com.google.cloud.spanner.BatchClient;
@@ -12,23 +15,28 @@ import com.google.cloud.spanner.BatchReadOnlyTransaction;
 import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Partition;
 import com.google.cloud.spanner.PartitionOptions;
-import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.TimestampBound;
 import io.github.olavloite.spanner.emulator.util.EnglishNumberToWords;
+import io.github.olavloite.spanner.emulator.util.PartitionExecutor;
+import io.github.olavloite.spanner.emulator.util.PartitionExecutor.Result;
 
 public class PartitionSpannerTest extends AbstractSpannerTest {
+  private static final Log log = LogFactory.getLog(PartitionSpannerTest.class);
   private static final long NUMBER_OF_ROWS = 200;
+  private static final int PARALLELISM = 4;
 
   @BeforeClass
   public static void before() {
-    createNumberTable();
-    insertTestNumbers(NUMBER_OF_ROWS);
+    useFixture(numberTableFixture(NUMBER_OF_ROWS, false));
   }
 
-  @AfterClass
-  public static void after() {
-    dropNumberTable();
+  /** Checks the rows that the partitions returned, after the executor has finished. */
+  private static void assertNames(Map<Long, String> names) {
+    assertEquals(NUMBER_OF_ROWS, names.size());
+    for (Map.Entry<Long, String> entry : names.entrySet()) {
+      assertEquals(EnglishNumberToWords.convert(entry.getKey()), entry.getValue());
+    }
   }
 
   @Test
@@ -39,16 +47,12 @@ public class PartitionSpannerTest extends AbstractSpannerTest {
           tx.partitionQuery(PartitionOptions.newBuilder().setMaxPartitions(5L).build(),
               Statement.of("select * from number"));
       assertFalse(partitions.isEmpty());
-      long count = 0;
-      for (Partition partition : partitions) {
-        try (ResultSet rs = tx.execute(partition)) {
-          while (rs.next()) {
-            assertEquals(rs.getString("name"), EnglishNumberToWords.convert(rs.getLong("number")));
-            count++;
-          }
-        }
-      }
-      assertEquals(NUMBER_OF_ROWS, count);
+      Map<Long, String> names = new ConcurrentHashMap<>();
+      Result result = new PartitionExecutor(client, PARALLELISM, false).execute(tx, partitions,
+          row -> names.put(row.getLong("number"), row.getString("name")));
+      log.info("Partitioned query: " + result);
+      assertEquals(NUMBER_OF_ROWS, result.getRows());
+      assertNames(names);
     }
   }
 
@@ -60,16 +64,12 @@ public class PartitionSpannerTest extends AbstractSpannerTest {
           tx.partitionRead(PartitionOptions.newBuilder().setMaxPartitions(5L).build(), "number",
               KeySet.all(), Arrays.asList("number", "name"));
       assertFalse(partitions.isEmpty());
-      long count = 0;
-      for (Partition partition : partitions) {
-        try (ResultSet rs = tx.execute(partition)) {
-          while (rs.next()) {
-            assertEquals(rs.getString("name"), EnglishNumberToWords.convert(rs.getLong("number")));
-            count++;
-          }
-        }
-      }
-      assertEquals(NUMBER_OF_ROWS, count);
+      Map<Long, String> names = new ConcurrentHashMap<>();
+      Result result = new PartitionExecutor(client, PARALLELISM, true).execute(tx, partitions,
+          row -> names.put(row.getLong("number"), row.getString("name")));
+      log.info("Partitioned read: " + result);
+      assertEquals(NUMBER_OF_ROWS, result.getRows());
+      assertNames(names);
     }
   }
 
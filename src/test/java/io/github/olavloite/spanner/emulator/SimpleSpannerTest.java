@@ -40,8 +40,9 @@ public class SimpleSpannerTest extends AbstractSpannerTest {
 
   private void testCreateTable() {
     OperationFuture<Void, UpdateDatabaseDdlMetadata> operation =
-        getDatabaseAdminClient().updateDatabaseDdl(INSTANCE_ID, DATABASE_ID, Arrays.asList(
-            "create table number (number int64 not null, name string(100) not null) primary key (number)"),
+        getDatabaseAdminClient().updateDatabaseDdl(getInstanceId(), getDatabaseId().getDatabase(),
+            Arrays.asList(
+                "create table number (number int64 not null, name string(100) not null) primary key (number)"),
             null);
     try {
       operation.get();
@@ -0,0 +1,533 @@
+package io.github.olavloite.spanner.emulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import com.google.api.gax.longrunning.OperationFuture;
+import com.google.cloud.spanner.Database;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Instance;
+import com.google.cloud.spanner.InstanceConfigId;
+import com.google.cloud.spanner.InstanceId;
+import com.google.cloud.spanner.InstanceInfo;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.spanner.admin.database.v1.CreateDatabaseMetadata;
+import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
+import com.google.spanner.admin.instance.v1.CreateInstanceMetadata;
+import io.github.olavloite.spanner.emulator.util.DdlBatch;
+
+/**
+ * JVM-wide pool of test databases. The pool creates one test instance the first time it is used,
+ * and hands out databases named <code>test-database-&lt;n&gt;</code> on that instance. A database
+ * that is released is emptied and handed out again, which is faster than dropping it and creating
+ * a new one. The instance and all databases are removed when the JVM exits.
+ *
+ * <p>
+ * Databases that are acquired for a {@link Fixture} are built once and kept when they are released,
+ * so that the next test class that asks for the same fixture does not have to execute the DDL and
+ * load the data again. Test classes that use a fixture must not change its schema or data. A
+ * fixture database is only reused if its schema and the number of rows in each table are unchanged
+ * when it is released.
+ *
+ * <p>
+ * With <code>-Dpool.instance=&lt;instance&gt;</code> the pool uses the given instance, creates it if
+ * it does not exist, and keeps it when the JVM exits. Fixture databases on such an instance are
+ * named after their fixture and are also kept, so that later JVMs, such as the forks of a JMH run,
+ * reuse them instead of loading the data again. The state of each kept fixture database is stored
+ * in <code>-Dpool.dir</code> (default <code>target/test-pool</code>), and a database is only
+ * reused if its schema and row counts still match that state. Only one JVM at a time may use a
+ * persistent instance.
+ */
+public class TestDatabasePool {
+  private static final Log log = LogFactory.getLog(TestDatabasePool.class);
+
+  /** The maximum number of fixture databases that are kept when they are not in use. */
+  private static final int MAX_IDLE_FIXTURES = 10;
+  private static final String DEFAULT_DIRECTORY = "target/test-pool";
+
+  private static TestDatabasePool pool;
+
+  private final Spanner spanner;
+  private final String instanceId;
+  private final boolean persistent;
+  private final String databasePrefix;
+  private final AtomicInteger databaseCounter = new AtomicInteger();
+  private final Deque<DatabaseId> idleDatabases = new ArrayDeque<>();
+  private final Set<DatabaseId> databasesInUse = Collections.synchronizedSet(new HashSet<>());
+  private final Map<String, Deque<FixtureDatabase>> idleFixtures = new HashMap<>();
+  private final Map<DatabaseId, FixtureDatabase> fixturesInUse = new ConcurrentHashMap<>();
+
+  /** A database that contains a fixture, and the state of the database after it was built. */
+  private static final class FixtureDatabase {
+    private final DatabaseId id;
+    private final Fixture fixture;
+    private final DatabaseState state;
+
+    private FixtureDatabase(DatabaseId id, Fixture fixture, DatabaseState state) {
+      this.id = id;
+      this.fixture = fixture;
+      this.state = state;
+    }
+  }
+
+  private static final class DatabaseState {
+    private final List<String> ddl;
+    private final Map<String, Long> rowCounts;
+
+    private DatabaseState(List<String> ddl, Map<String, Long> rowCounts) {
+      this.ddl = ddl;
+      this.rowCounts = rowCounts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof DatabaseState)) {
+        return false;
+      }
+      DatabaseState other = (DatabaseState) o;
+      return ddl.equals(other.ddl) && rowCounts.equals(other.rowCounts);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(ddl, rowCounts);
+    }
+  }
+
+  public static synchronized TestDatabasePool getInstance() {
+    if (pool == null) {
+      Spanner spanner = AbstractSpannerTest.createSpannerOptionsBuilder().build().getService();
+      String persistentInstanceId = getPersistentInstanceId();
+      if (persistentInstanceId == null) {
+        pool = new TestDatabasePool(spanner, "test-instance-" + new Random().nextInt(100000000),
+            false);
+      } else {
+        pool = new TestDatabasePool(spanner, persistentInstanceId, true);
+      }
+      Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown));
+    }
+    return pool;
+  }
+
+  /**
+   * @return the instance that is kept when the JVM exits (<code>-Dpool.instance</code>), or
+   *         <code>null</code> if the pool should create a new instance
+   */
+  private static String getPersistentInstanceId() {
+    String instanceId = System.getProperty("pool.instance");
+    return instanceId == null || instanceId.isEmpty() ? null : instanceId;
+  }
+
+  private TestDatabasePool(Spanner spanner, String instanceId, boolean persistent) {
+    this.spanner = spanner;
+    this.instanceId = instanceId;
+    this.persistent = persistent;
+    // Databases of a crashed JVM may still exist on a persistent instance
+    this.databasePrefix =
+        persistent ? "test-database-" + new Random().nextInt(100000) + "-" : "test-database-";
+    if (persistent) {
+      try {
+        spanner.getInstanceAdminClient().getInstance(instanceId);
+        log.info("Using persistent test instance " + instanceId);
+        return;
+      } catch (SpannerException e) {
+        if (e.getErrorCode() != ErrorCode.NOT_FOUND) {
+          throw e;
+        }
+      }
+    }
+    log.info("Creating shared test instance " + instanceId);
+    OperationFuture<Instance, CreateInstanceMetadata> createInstance = spanner
+        .getInstanceAdminClient()
+        .createInstance(InstanceInfo
+            .newBuilder(InstanceId.of(AbstractSpannerTest.getProject(), instanceId))
+            .setDisplayName("Test Instance")
+            .setInstanceConfigId(
+                InstanceConfigId.of(AbstractSpannerTest.getProject(), "regional-europe-west1"))
+            .setNodeCount(1).build());
+    try {
+      createInstance.get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw SpannerExceptionFactory.newSpannerException(e);
+    }
+  }
+
+  public Spanner getSpanner() {
+    return spanner;
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  /**
+   * @return an empty database that may be used exclusively by the caller until it is given back
+   *         with {@link #release(DatabaseId)}
+   */
+  public DatabaseId acquire() {
+    DatabaseId id;
+    synchronized (idleDatabases) {
+      id = idleDatabases.poll();
+    }
+    if (id == null) {
+      id = createDatabase(databasePrefix + databaseCounter.incrementAndGet());
+    }
+    databasesInUse.add(id);
+    return id;
+  }
+
+  private DatabaseId createDatabase(String databaseId) {
+    log.info("Creating new test database " + databaseId);
+    OperationFuture<Database, CreateDatabaseMetadata> createDatabase = spanner
+        .getDatabaseAdminClient().createDatabase(instanceId, databaseId, Collections.emptyList());
+    try {
+      return createDatabase.get().getId();
+    } catch (InterruptedException | ExecutionException e) {
+      throw SpannerExceptionFactory.newSpannerException(e);
+    }
+  }
+
+  /**
+   * @return a database that contains the given fixture and that may be used exclusively by the
+   *         caller until it is given back with {@link #release(DatabaseId)}. The database is built
+   *         if there is no idle database with the same fixture.
+   */
+  public DatabaseId acquire(Fixture fixture) {
+    FixtureDatabase database;
+    synchronized (idleFixtures) {
+      Deque<FixtureDatabase> idle = idleFixtures.get(fixture.getKey());
+      database = idle == null ? null : idle.poll();
+    }
+    if (database != null) {
+      log.info("Reusing fixture database " + database.id.getDatabase());
+    } else {
+      if (persistent) {
+        database = acquirePersistentFixture(fixture);
+      }
+      if (database == null) {
+        database = buildFixture(acquire(), fixture);
+      }
+    }
+    fixturesInUse.put(database.id, database);
+    databasesInUse.add(database.id);
+    return database.id;
+  }
+
+  /**
+   * @return the database on the persistent instance that is named after the fixture, which is
+   *         reused if an earlier JVM built it and it is unchanged, and built otherwise. Returns
+   *         <code>null</code> if the database is already in use by this JVM.
+   */
+  private FixtureDatabase acquirePersistentFixture(Fixture fixture) {
+    DatabaseId id = DatabaseId.of(AbstractSpannerTest.getProject(), instanceId,
+        getFixtureDatabaseName(fixture));
+    if (!databasesInUse.add(id)) {
+      return null;
+    }
+    DatabaseState stored = readFixtureState(id, fixture);
+    if (stored != null) {
+      try {
+        if (stored.equals(getState(id))) {
+          log.info("Reusing fixture database " + id.getDatabase() + " of an earlier run");
+          return new FixtureDatabase(id, fixture, stored);
+        }
+        log.info("Fixture database " + id.getDatabase() + " was changed after it was built");
+      } catch (SpannerException e) {
+        if (e.getErrorCode() != ErrorCode.NOT_FOUND) {
+          log.warn("Could not determine whether " + id.getDatabase() + " was changed", e);
+        }
+      }
+    }
+    try {
+      dropDatabase(id);
+      createDatabase(id.getDatabase());
+    } catch (RuntimeException e) {
+      databasesInUse.remove(id);
+      throw e;
+    }
+    FixtureDatabase database = buildFixture(id, fixture);
+    writeFixtureState(database);
+    return database;
+  }
+
+  /** Executes the DDL of the fixture and loads its data in the given empty database. */
+  private FixtureDatabase buildFixture(DatabaseId id, Fixture fixture) {
+    long startTime = System.nanoTime();
+    try {
+      OperationFuture<Void, UpdateDatabaseDdlMetadata> updateDdl = spanner
+          .getDatabaseAdminClient().updateDatabaseDdl(instanceId, id.getDatabase(),
+              fixture.getDdl(), null);
+      updateDdl.get();
+      fixture.load(spanner.getDatabaseClient(id));
+    } catch (InterruptedException | ExecutionException e) {
+      release(id);
+      throw SpannerExceptionFactory.newSpannerException(e);
+    } catch (RuntimeException e) {
+      release(id);
+      throw e;
+    }
+    FixtureDatabase database = new FixtureDatabase(id, fixture, getState(id));
+    log.info(String.format("Built fixture database %s in %d ms", id.getDatabase(),
+        (System.nanoTime() - startTime) / 1000000L));
+    return database;
+  }
+
+  private static String getFixtureDatabaseName(Fixture fixture) {
+    return "fixture-" + Integer.toHexString(fixture.getKey().hashCode());
+  }
+
+  private boolean isPersistentFixture(FixtureDatabase database) {
+    return persistent && database.id.getDatabase().equals(getFixtureDatabaseName(database.fixture));
+  }
+
+  private File getStateFile() {
+    return new File(System.getProperty("pool.dir", DEFAULT_DIRECTORY), instanceId + ".json");
+  }
+
+  /**
+   * @return the state of the given database after it was built for the fixture by an earlier JVM,
+   *         or <code>null</code> if it is unknown
+   */
+  private synchronized DatabaseState readFixtureState(DatabaseId id, Fixture fixture) {
+    JSONObject json = readStateFile().optJSONObject(id.getDatabase());
+    if (json == null || !fixture.getKey().equals(json.optString("key"))) {
+      return null;
+    }
+    List<String> ddl = new ArrayList<>();
+    JSONArray statements = json.getJSONArray("ddl");
+    for (int i = 0; i < statements.length(); i++) {
+      ddl.add(statements.getString(i));
+    }
+    Map<String, Long> rowCounts = new HashMap<>();
+    JSONObject counts = json.getJSONObject("rowCounts");
+    for (String table : counts.keySet()) {
+      rowCounts.put(table, counts.getLong(table));
+    }
+    return new DatabaseState(ddl, rowCounts);
+  }
+
+  private synchronized void writeFixtureState(FixtureDatabase database) {
+    JSONObject states = readStateFile();
+    states.put(database.id.getDatabase(),
+        new JSONObject().put("key", database.fixture.getKey()).put("ddl", database.state.ddl)
+            .put("rowCounts", database.state.rowCounts));
+    File file = getStateFile();
+    file.getParentFile().mkdirs();
+    try {
+      Files.write(file.toPath(), states.toString(2).getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      log.warn("Could not write " + file.getAbsolutePath(), e);
+    }
+  }
+
+  private JSONObject readStateFile() {
+    File file = getStateFile();
+    if (!file.exists()) {
+      return new JSONObject();
+    }
+    try {
+      return new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    } catch (IOException | JSONException e) {
+      log.warn("Could not read " + file.getAbsolutePath(), e);
+      return new JSONObject();
+    }
+  }
+
+  /**
+   * Gives a database back to the pool. A fixture database is kept for the next test class that
+   * uses the same fixture if it has not been changed. The indexes and tables of any other database
+   * are dropped, and the database is reused. It is only dropped if that fails.
+   */
+  public void release(DatabaseId id) {
+    if (!databasesInUse.remove(id)) {
+      return;
+    }
+    FixtureDatabase fixture = fixturesInUse.remove(id);
+    if (fixture != null) {
+      releaseFixture(fixture);
+      return;
+    }
+    if (isEmpty(id) || reset(id)) {
+      synchronized (idleDatabases) {
+        idleDatabases.push(id);
+      }
+    } else {
+      log.info("Dropping test database " + id.getDatabase());
+      dropDatabase(id);
+    }
+  }
+
+  private void releaseFixture(FixtureDatabase database) {
+    boolean unchanged;
+    try {
+      unchanged = database.state.equals(getState(database.id));
+    } catch (SpannerException e) {
+      log.warn("Could not determine whether " + database.id.getDatabase() + " was changed", e);
+      unchanged = false;
+    }
+    if (unchanged) {
+      synchronized (idleFixtures) {
+        int idle = idleFixtures.values().stream().mapToInt(Deque::size).sum();
+        if (idle < MAX_IDLE_FIXTURES) {
+          idleFixtures.computeIfAbsent(database.fixture.getKey(), key -> new ArrayDeque<>())
+              .push(database);
+          return;
+        }
+      }
+    } else {
+      log.info("Fixture database " + database.id.getDatabase() + " was changed by the test");
+    }
+    log.info("Dropping fixture database " + database.id.getDatabase());
+    dropDatabase(database.id);
+  }
+
+  private DatabaseState getState(DatabaseId id) {
+    List<String> ddl = spanner.getDatabaseAdminClient().getDatabaseDdl(instanceId, id.getDatabase());
+    Map<String, Long> rowCounts = new HashMap<>();
+    List<String> tables = new ArrayList<>();
+    try (ResultSet rs = spanner.getDatabaseClient(id).singleUse().executeQuery(Statement
+        .of("select TABLE_NAME from INFORMATION_SCHEMA.TABLES where TABLE_SCHEMA=''"))) {
+      while (rs.next()) {
+        tables.add(rs.getString(0));
+      }
+    }
+    for (String table : tables) {
+      try (ResultSet rs = spanner.getDatabaseClient(id).singleUse()
+          .executeQuery(Statement.of("select count(*) from `" + table + "`"))) {
+        rowCounts.put(table, rs.next() ? rs.getLong(0) : 0L);
+      }
+    }
+    return new DatabaseState(ddl, rowCounts);
+  }
+
+  /**
+   * Drops all indexes and tables of the given database in one schema change, child tables before
+   * their parents.
+   *
+   * @return true if the database is empty afterwards
+   */
+  private boolean reset(DatabaseId id) {
+    List<String> ddl = new ArrayList<>();
+    Map<String, String> parents = new HashMap<>();
+    try {
+      try (ResultSet rs = spanner.getDatabaseClient(id).singleUse().executeQuery(Statement.of(
+          "select INDEX_NAME from INFORMATION_SCHEMA.INDEXES where TABLE_SCHEMA='' and INDEX_TYPE='INDEX'"))) {
+        while (rs.next()) {
+          ddl.add("drop index " + rs.getString(0));
+        }
+      }
+      try (ResultSet rs = spanner.getDatabaseClient(id).singleUse().executeQuery(Statement.of(
+          "select TABLE_NAME, PARENT_TABLE_NAME from INFORMATION_SCHEMA.TABLES where TABLE_SCHEMA=''"))) {
+        while (rs.next()) {
+          parents.put(rs.getString(0), rs.isNull(1) ? null : rs.getString(1));
+        }
+      }
+      List<String> tables = new ArrayList<>(parents.keySet());
+      tables.sort(Comparator.comparingInt((String table) -> getDepth(table, parents)).reversed());
+      for (String table : tables) {
+        ddl.add("drop table " + table);
+      }
+      log.info(String.format("Resetting test database %s (%d indexes and tables)", id.getDatabase(),
+          ddl.size()));
+      new DdlBatch(spanner.getDatabaseAdminClient(), id).add(ddl).execute();
+      return isEmpty(id);
+    } catch (SpannerException e) {
+      log.warn("Could not reset " + id.getDatabase(), e);
+      return false;
+    }
+  }
+
+  /** @return the number of ancestors of the given table */
+  private static int getDepth(String table, Map<String, String> parents) {
+    int depth = 0;
+    for (String parent = parents.get(table); parent != null && !parent.isEmpty()
+        && depth < parents.size(); parent = parents.get(parent)) {
+      depth++;
+    }
+    return depth;
+  }
+
+  private boolean isEmpty(DatabaseId id) {
+    try (ResultSet rs = spanner.getDatabaseClient(id).singleUse()
+        .executeQuery(Statement.of("select TABLE_SCHEMA, TABLE_NAME from INFORMATION_SCHEMA.TABLES"))) {
+      while (rs.next()) {
+        if (rs.isNull(0) || "".equals(rs.getString(0))) {
+          return false;
+        }
+      }
+      return true;
+    } catch (SpannerException e) {
+      log.warn("Could not determine whether " + id.getDatabase() + " is empty", e);
+      return false;
+    }
+  }
+
+  private void dropDatabase(DatabaseId id) {
+    try {
+      spanner.getDatabaseAdminClient().dropDatabase(instanceId, id.getDatabase());
+    } catch (SpannerException e) {
+      if (e.getErrorCode() != ErrorCode.NOT_FOUND) {
+        throw e;
+      }
+    }
+  }
+
+  private void shutdown() {
+    try {
+      synchronized (idleDatabases) {
+        idleDatabases.forEach(this::dropDatabase);
+        idleDatabases.clear();
+      }
+      synchronized (idleFixtures) {
+        idleFixtures.values().forEach(idle -> idle.stream()
+            .filter(database -> !isPersistentFixture(database))
+            .forEach(database -> dropDatabase(database.id)));
+        idleFixtures.clear();
+      }
+      synchronized (databasesInUse) {
+        databasesInUse.forEach(this::dropDatabase);
+        databasesInUse.clear();
+      }
+      if (persistent) {
+        log.info("Keeping persistent test instance " + instanceId);
+        return;
+      }
+      spanner.getInstanceAdminClient().deleteInstance(instanceId);
+      log.info("Dropped shared test instance " + instanceId);
+    } catch (SpannerException e) {
+      if (e.getErrorCode() != ErrorCode.NOT_FOUND) {
+        log.warn("Could not clean up shared test instance " + instanceId, e);
+      }
+    } finally {
+      spanner.close();
+      AbstractSpannerTest.closeShapingProxy();
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+package io.github.olavloite.spanner.emulator.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
+import io.github.olavloite.spanner.emulator.concurrent.SimpleConcurrentTest.SingleUseReadCallable;
+import io.github.olavloite.spanner.emulator.concurrent.SimpleConcurrentTest.WriteCallable;
+import io.github.olavloite.spanner.emulator.metrics.OpenLoopLoadGenerator;
+import io.github.olavloite.spanner.emulator.metrics.OpenLoopLoadGenerator.Result;
+import io.github.olavloite.spanner.emulator.metrics.PerformanceBaseline;
+
+/**
+ * Open-loop load test using the read and write operations of {@link SimpleConcurrentTest}. The
+ * test only runs when a rate is given with <code>-Dload.rate=&lt;ops/s&gt;</code>. The rate is
+ * increased with <code>load.rateStep</code> until the emulator cannot keep up or
+ * <code>load.maxRate</code> is reached. Each step runs for <code>load.duration</code> seconds
+ * (default 30) with at most <code>load.threads</code> concurrent operations (default 100).
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class OpenLoopLoadTest extends AbstractSpannerTest {
+  private static final Log log = LogFactory.getLog(OpenLoopLoadTest.class);
+  private static final long INITIAL_NUMBER_OF_ROWS = 100L;
+
+  @BeforeClass
+  public static void before() {
+    assumeTrue("No load rate given", System.getProperty("load.rate") != null);
+    createNumberTable();
+    insertTestNumbers(INITIAL_NUMBER_OF_ROWS);
+  }
+
+  private static double getRate() {
+    return Double.parseDouble(System.getProperty("load.rate"));
+  }
+
+  private static double getRateStep() {
+    return Double.parseDouble(System.getProperty("load.rateStep", String.valueOf(getRate())));
+  }
+
+  private static double getMaxRate() {
+    return Double.parseDouble(System.getProperty("load.maxRate", String.valueOf(getRate())));
+  }
+
+  private static long getDuration() {
+    return Long.getLong("load.duration", 30L);
+  }
+
+  private static int getThreads() {
+    return Integer.getInteger("load.threads", 100);
+  }
+
+  /**
+   * Finds the throughput knee of the operation and compares the highest rate that was not
+   * saturated with the baseline of the scenario.
+   */
+  private List<Result> findKnee(String scenario, Runnable operation) throws InterruptedException {
+    List<Result> results = new OpenLoopLoadGenerator(operation, getThreads()).findKnee(getRate(),
+        getRateStep(), getMaxRate(), getDuration(), TimeUnit.SECONDS);
+    Result knee = results.get(0);
+    for (Result result : results) {
+      log.info(result);
+      assertEquals(0L, result.getErrors());
+      if (!result.isSaturated()) {
+        knee = result;
+      }
+    }
+    PerformanceBaseline.check(scenario, knee.getAchievedRate(),
+        knee.getLatencies().getValueAtPercentile(99D) / 1000000D);
+    return results;
+  }
+
+  @Test
+  public void test1_OpenLoopRead() throws InterruptedException {
+    log.info("Starting open-loop read test");
+    SingleUseReadCallable reader = new SingleUseReadCallable(getDatabaseClient());
+    findKnee("OpenLoopRead", () -> reader.readRandomRange((int) INITIAL_NUMBER_OF_ROWS));
+    log.info("Finished open-loop read test");
+  }
+
+  @Test
+  public void test2_OpenLoopWrite() throws InterruptedException {
+    log.info("Starting open-loop write test");
+    AtomicLong nextNumber = new AtomicLong(INITIAL_NUMBER_OF_ROWS + 1L);
+    findKnee("OpenLoopWrite", () -> {
+      try {
+        new WriteCallable(nextNumber.getAndIncrement(), 1L).call();
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    log.info("Finished open-loop write test");
+  }
+
+}
@@ -8,10 +8,9 @@ import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.junit.BeforeClass;
@@ -24,6 +23,9 @@ import com.google.cloud.spanner.ReadOnlyTransaction;
 import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Statement;
 import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
+import io.github.olavloite.spanner.emulator.metrics.PerformanceBaseline;
+import io.github.olavloite.spanner.emulator.metrics.WorkloadStats;
+import io.github.olavloite.spanner.emulator.util.TestExecutors;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class SimpleConcurrentTest extends AbstractSpannerTest {
@@ -36,13 +38,17 @@ public class SimpleConcurrentTest extends AbstractSpannerTest {
     insertTestNumbers(INITIAL_NUMBER_OF_ROWS);
   }
 
-  private static abstract class ReadCallable implements Callable<Void> {
+  static abstract class ReadCallable implements Callable<Void> {
     private static final int NUMBER_OF_READS = 200;
+    private static final String SQL =
+        "select * from number where number.number>=@p1 and number.number<=@p2";
     protected final DatabaseClient client;
+    private final WorkloadStats stats;
     private final Random rnd = new Random();
 
-    private ReadCallable(DatabaseClient client) {
+    private ReadCallable(DatabaseClient client, WorkloadStats stats) {
       this.client = client;
+      this.stats = stats;
     }
 
     protected abstract ReadContext getReadContext();
@@ -59,29 +65,39 @@ public class SimpleConcurrentTest extends AbstractSpannerTest {
       throw new AssertionError("Getting max number failed");
     }
 
+    /**
+     * Reads a random range of rows between 1 and max (inclusive) and checks the result.
+     */
+    void readRandomRange(int max) {
+      int p1 = rnd.nextInt(max) + 1;
+      int p2 = rnd.nextInt(max) + 1;
+      Statement statement = Statement.newBuilder(SQL).bind("p1").to(Math.min(p1, p2)).bind("p2")
+          .to(Math.max(p1, p2)).build();
+      int current = Math.min(p1, p2);
+      int count = Math.max(p1, p2) - current + 1;
+      int actualCount = 0;
+      long startTime = System.nanoTime();
+      ReadContext context = getReadContext();
+      stats.recordSessionWait(System.nanoTime() - startTime);
+      try (ResultSet rs = context.executeQuery(statement)) {
+        while (rs.next()) {
+          assertEquals(current, rs.getLong("number"));
+          current++;
+          actualCount++;
+        }
+      }
+      stats.recordLatency(System.nanoTime() - startTime);
+      assertEquals(count, actualCount);
+    }
+
     @Override
     public Void call() throws Exception {
       log.debug("Starting");
       int max = getMax();
       log.debug("Fetched max");
       assertEquals(100, max);
-      String sql = "select * from number where number.number>=@p1 and number.number<=@p2";
       for (int i = 0; i < NUMBER_OF_READS; i++) {
-        int p1 = rnd.nextInt(max) + 1;
-        int p2 = rnd.nextInt(max) + 1;
-        Statement statement = Statement.newBuilder(sql).bind("p1").to(Math.min(p1, p2)).bind("p2")
-            .to(Math.max(p1, p2)).build();
-        int current = Math.min(p1, p2);
-        int count = Math.max(p1, p2) - current + 1;
-        int actualCount = 0;
-        try (ResultSet rs = getReadContext().executeQuery(statement)) {
-          while (rs.next()) {
-            assertEquals(current, rs.getLong("number"));
-            current++;
-            actualCount++;
-          }
-        }
-        assertEquals(count, actualCount);
+        readRandomRange(max);
       }
       closeReadContext();
       log.debug("Finished");
@@ -89,9 +105,13 @@ public class SimpleConcurrentTest extends AbstractSpannerTest {
     }
   }
 
-  private static class SingleUseReadCallable extends ReadCallable {
-    private SingleUseReadCallable(DatabaseClient client) {
-      super(client);
+  static class SingleUseReadCallable extends ReadCallable {
+    SingleUseReadCallable(DatabaseClient client) {
+      this(client, new WorkloadStats());
+    }
+
+    SingleUseReadCallable(DatabaseClient client, WorkloadStats stats) {
+      super(client, stats);
     }
 
     @Override
@@ -103,8 +123,8 @@ public class SimpleConcurrentTest extends AbstractSpannerTest {
   private static class TransactionReadCallable extends ReadCallable {
     private ReadOnlyTransaction transaction;
 
-    private TransactionReadCallable(DatabaseClient client) {
-      super(client);
+    private TransactionReadCallable(DatabaseClient client, WorkloadStats stats) {
+      super(client, stats);
     }
 
     @Override
@@ -126,45 +146,71 @@ public class SimpleConcurrentTest extends AbstractSpannerTest {
   @Test
   public void test1_ConcurrentReadSingleUse() throws InterruptedException, ExecutionException {
     log.info("Starting concurrent-read-single-use test");
-    testConcurrentRead(SingleUseReadCallable::new);
+    testConcurrentRead("ConcurrentReadSingleUse", SingleUseReadCallable::new);
     log.info("Finished concurrent-read-single-use test");
   }
 
   @Test
   public void test2_ConcurrentReadTransaction() throws InterruptedException, ExecutionException {
     log.info("Starting concurrent-read-transaction test");
-    testConcurrentRead(TransactionReadCallable::new);
+    testConcurrentRead("ConcurrentReadTransaction", TransactionReadCallable::new);
     log.info("Finished concurrent-read-transaction test");
   }
 
-  private void testConcurrentRead(Function<DatabaseClient, ReadCallable> callableConstructor)
+  private void testConcurrentRead(String scenario,
+      BiFunction<DatabaseClient, WorkloadStats, ReadCallable> callableConstructor)
       throws InterruptedException, ExecutionException {
     final DatabaseClient client = getDatabaseClient();
-    int numberOfConcurrentThreads = 10;
-    ExecutorService executor = Executors.newFixedThreadPool(numberOfConcurrentThreads);
+    int numberOfConcurrentThreads = TestExecutors.getConcurrency();
+    WorkloadStats stats = new WorkloadStats();
+    ExecutorService executor = TestExecutors.newExecutor(numberOfConcurrentThreads);
     List<Future<Void>> res = new ArrayList<>(numberOfConcurrentThreads);
     for (int i = 0; i < numberOfConcurrentThreads; i++) {
-      res.add(executor.submit(callableConstructor.apply(client)));
+      res.add(executor.submit(callableConstructor.apply(client, stats)));
     }
     executor.shutdown();
-    executor.awaitTermination(1L, TimeUnit.MINUTES);
+    executor.awaitTermination(getTimeoutMinutes(), TimeUnit.MINUTES);
+    stats.finish();
     for (Future<Void> future : res) {
       assertNull(future.get());
     }
+    log.info(String.format("%d %s threads: %s", numberOfConcurrentThreads,
+        TestExecutors.isUsingVirtualThreads() ? "virtual" : "platform", stats));
+    checkBaseline(scenario, stats);
   }
 
-  private final class WriteCallable implements Callable<Void> {
+  private static void checkBaseline(String scenario, WorkloadStats stats) {
+    scenario = String.format("%s concurrency=%d threads=%s", scenario,
+        TestExecutors.getConcurrency(),
+        TestExecutors.isUsingVirtualThreads() ? "virtual" : "platform");
+    PerformanceBaseline.check(scenario, stats.getThroughput(),
+        stats.getLatencies().getValueAtPercentile(99D) / 1000000D);
+  }
+
+  private static long getTimeoutMinutes() {
+    return Long.getLong("concurrent.timeoutMinutes", 1L);
+  }
+
+  static final class WriteCallable implements Callable<Void> {
     private final long from;
     private final long noOfRows;
+    private final WorkloadStats stats;
+
+    WriteCallable(long from, long noOfRows) {
+      this(from, noOfRows, new WorkloadStats());
+    }
 
-    private WriteCallable(long from, long noOfRows) {
+    WriteCallable(long from, long noOfRows, WorkloadStats stats) {
       this.from = from;
       this.noOfRows = noOfRows;
+      this.stats = stats;
     }
 
     @Override
     public Void call() throws Exception {
+      long startTime = System.nanoTime();
       SimpleConcurrentTest.insertTestNumbers(from, noOfRows);
+      stats.recordLatency(System.nanoTime() - startTime);
       return null;
     }
   }
@@ -172,19 +218,24 @@ public class SimpleConcurrentTest extends AbstractSpannerTest {
   @Test
   public void test3_ConcurrentWrite() throws InterruptedException, ExecutionException {
     log.info("Starting concurrent-write test");
-    int numberOfConcurrentThreads = 10;
+    int numberOfConcurrentThreads = TestExecutors.getConcurrency();
     long noOfRows = 100L;
-    ExecutorService executor = Executors.newFixedThreadPool(numberOfConcurrentThreads);
+    WorkloadStats stats = new WorkloadStats();
+    ExecutorService executor = TestExecutors.newExecutor(numberOfConcurrentThreads);
     List<Future<Void>> res = new ArrayList<>(numberOfConcurrentThreads);
     for (int i = 0; i < numberOfConcurrentThreads; i++) {
       long from = INITIAL_NUMBER_OF_ROWS + (i * noOfRows) + 1;
-      res.add(executor.submit(new WriteCallable(from, noOfRows)));
+      res.add(executor.submit(new WriteCallable(from, noOfRows, stats)));
     }
     executor.shutdown();
-    executor.awaitTermination(1L, TimeUnit.MINUTES);
+    executor.awaitTermination(getTimeoutMinutes(), TimeUnit.MINUTES);
+    stats.finish();
     for (Future<Void> future : res) {
       assertNull(future.get());
     }
+    log.info(String.format("%d %s threads: %s", numberOfConcurrentThreads,
+        TestExecutors.isUsingVirtualThreads() ? "virtual" : "platform", stats));
+    checkBaseline("ConcurrentWrite", stats);
     // Check the total number of rows in the table
     long count = 0L;
     try (ResultSet rs =
@@ -19,8 +19,7 @@ public class InvalidSQLTest extends AbstractSpannerTest {
 
   @BeforeClass
   public static void before() {
-    createNumberTable();
-    insertTestNumbers(NUMBER_OF_ROWS);
+    useFixture(numberTableFixture(NUMBER_OF_ROWS, false));
   }
 
   @Test
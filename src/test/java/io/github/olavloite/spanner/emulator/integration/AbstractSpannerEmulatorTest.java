@@ -1,39 +1,17 @@
 package io.github.olavloite.spanner.emulator.integration;
 
-import java.io.IOException;
-import java.util.Arrays;
-import java.util.Random;
-import java.util.concurrent.ExecutionException;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
-import com.google.api.gax.longrunning.OperationFuture;
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.cloud.spanner.Database;
 import com.google.cloud.spanner.DatabaseAdminClient;
 import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.DatabaseId;
-import com.google.cloud.spanner.Instance;
-import com.google.cloud.spanner.InstanceAdminClient;
-import com.google.cloud.spanner.InstanceConfig;
-import com.google.cloud.spanner.InstanceId;
 import com.google.cloud.spanner.Spanner;
-import com.google.cloud.spanner.SpannerExceptionFactory;
-import com.google.cloud.spanner.SpannerOptions;
-import com.google.cloud.spanner.SpannerOptions.Builder;
-import com.google.spanner.admin.database.v1.CreateDatabaseMetadata;
-import com.google.spanner.admin.instance.v1.CreateInstanceMetadata;
-import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
-import io.github.olavloite.spanner.emulator.util.CloudSpannerOAuthUtil;
+import io.github.olavloite.spanner.emulator.TestDatabasePool;
 
 public abstract class AbstractSpannerEmulatorTest {
 
-  private static final String DATABASE_ID = "test-database";
-
   private static Spanner spanner;
-  private static String projectId;
-  private static String instanceId;
   private static DatabaseId databaseId;
-  private static String credentialsPath;
 
   protected static Spanner getSpanner() {
     return spanner;
@@ -52,66 +30,16 @@ public abstract class AbstractSpannerEmulatorTest {
   }
 
   @BeforeClass
-  public static void setup() throws IOException, InterruptedException {
-    createSpanner();
-    createInstance();
-    createDatabase();
-  }
-
-  private static void createSpanner() {
-    // generate a unique instance id for this test run
-    Random rnd = new Random();
-    instanceId = "test-instance-" + rnd.nextInt(1000000);
-    credentialsPath = AbstractSpannerTest.getKeyFile();
-    projectId = AbstractSpannerTest.getProject();
-    GoogleCredentials credentials = CloudSpannerOAuthUtil.getCredentialsFromFile(credentialsPath);
-    Builder builder = SpannerOptions.newBuilder();
-    builder.setProjectId(projectId);
-    builder.setCredentials(credentials);
-    builder.setHost(AbstractSpannerTest.getHost());
-
-    SpannerOptions options = builder.build();
-    spanner = options.getService();
+  public static void setup() {
+    TestDatabasePool pool = TestDatabasePool.getInstance();
+    spanner = pool.getSpanner();
+    databaseId = pool.acquire();
   }
 
   @AfterClass
   public static void teardown() {
-    cleanUpDatabase();
-    cleanUpInstance();
-  }
-
-  private static void createInstance() {
-    InstanceAdminClient instanceAdminClient = spanner.getInstanceAdminClient();
-    InstanceConfig config = instanceAdminClient.getInstanceConfig("regional-europe-west1");
-    Instance instance = instanceAdminClient.newInstanceBuilder(InstanceId.of(projectId, instanceId))
-        .setDisplayName("Test Instance").setInstanceConfigId(config.getId()).setNodeCount(1)
-        .build();
-    OperationFuture<Instance, CreateInstanceMetadata> createInstance =
-        instanceAdminClient.createInstance(instance);
-    try {
-      createInstance.get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw SpannerExceptionFactory.newSpannerException(e);
-    }
-  }
-
-  private static void createDatabase() {
-    OperationFuture<Database, CreateDatabaseMetadata> createDatabase =
-        spanner.getDatabaseAdminClient().createDatabase(instanceId, DATABASE_ID, Arrays.asList());
-    try {
-      createDatabase.get();
-    } catch (InterruptedException | ExecutionException e) {
-      throw SpannerExceptionFactory.newSpannerException(e);
-    }
-    databaseId = DatabaseId.of(InstanceId.of(projectId, instanceId), DATABASE_ID);
-  }
-
-  private static void cleanUpInstance() {
-    spanner.getInstanceAdminClient().deleteInstance(instanceId);
-  }
-
-  private static void cleanUpDatabase() {
-    spanner.getDatabaseAdminClient().dropDatabase(instanceId, DATABASE_ID);
+    TestDatabasePool.getInstance().release(databaseId);
+    databaseId = null;
   }
 
 }
@@ -26,24 +26,23 @@ public class ComplexInterleavedTest extends AbstractSpannerTest {
   @BeforeClass
   public static void createTables() {
     log.info("Creating tables");
-    executeDdl(
+    addDdl(
         "create table parent1 (parent1_id int64 not null, col1 bool, col2 bytes(16), col3 float64, col4 int64, col5 string(100)) primary key (parent1_id)");
-    executeDdl(
+    addDdl(
         "create table parent2 (parent1_id int64 not null, parent2_id string(10) not null, array1 array<bool>, array2 array<bytes(16)>, array3 array<float64>, array4 array<int64>, array5 array<string(100)>) primary key (parent1_id, parent2_id), interleave in parent parent1");
-    executeDdl(
+    addDdl(
         "create table parent3 (parent1_id int64 not null, parent2_id string(10) not null, parent3_id bool, description string(100)) primary key (parent1_id, parent2_id, parent3_id), interleave in parent parent2");
-    executeDdl(
+    addDdl(
         "create table child (parent1_id int64 not null, parent2_id string(10) not null, parent3_id bool, child_id int64, child_name string(100)) primary key (parent1_id, parent2_id, parent3_id, child_id), interleave in parent parent3");
+    submitDdl();
     log.info("Finished creating tables");
   }
 
   @AfterClass
   public static void dropTables() {
     log.info("Dropping tables");
-    executeDdl("drop table child");
-    executeDdl("drop table parent3");
-    executeDdl("drop table parent2");
-    executeDdl("drop table parent1");
+    executeDdl(Arrays.asList("drop table child", "drop table parent3", "drop table parent2",
+        "drop table parent1"));
     log.info("Finished dropping tables");
   }
 
@@ -35,12 +35,13 @@ public class DeleteCascadeTest extends AbstractSpannerTest {
   @BeforeClass
   public static void before() {
     log.info("Starting to create interleaved tables");
-    executeDdl(
+    addDdl(
         "CREATE TABLE TREE (TREE_ID INT64 NOT NULL, NAME STRING(100) NOT NULL) PRIMARY KEY (TREE_ID)");
-    executeDdl(
+    addDdl(
         "CREATE TABLE NODE_LEVEL1 (TREE_ID INT64 NOT NULL, NODE_LEVEL1_ID INT64 NOT NULL, NODE_LEVEL1_NAME STRING(100)) PRIMARY KEY (TREE_ID, NODE_LEVEL1_ID), INTERLEAVE IN PARENT TREE");
-    executeDdl(
+    addDdl(
         "CREATE TABLE NODE_LEVEL2 (TREE_ID INT64 NOT NULL, NODE_LEVEL1_ID INT64 NOT NULL, NODE_LEVEL2_ID INT64 NOT NULL, NODE_LEVEL2_NAME STRING(100)) PRIMARY KEY (TREE_ID, NODE_LEVEL1_ID, NODE_LEVEL2_ID), INTERLEAVE IN PARENT NODE_LEVEL1 ON DELETE CASCADE");
+    submitDdl();
     log.info("Finished creating interleaved tables");
   }
 
@@ -22,8 +22,7 @@ public class HashJoinFailsTest extends AbstractSpannerTest {
 
   @BeforeClass
   public static void before() {
-    createNumberTable();
-    insertTestNumbers(100L);
+    useFixture(numberTableFixture(100L, false));
   }
 
   @Test
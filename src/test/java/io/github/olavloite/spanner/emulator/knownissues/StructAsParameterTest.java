@@ -24,8 +24,7 @@ public class StructAsParameterTest extends AbstractSpannerTest {
 
   @BeforeClass
   public static void before() {
-    createNumberTable();
-    insertTestNumbers(100L);
+    useFixture(numberTableFixture(100L, false));
   }
 
   @Test
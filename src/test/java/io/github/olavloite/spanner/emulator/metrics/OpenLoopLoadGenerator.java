@@ -0,0 +1,159 @@
+package io.github.olavloite.spanner.emulator.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Executes an operation at a constant arrival rate, regardless of how long each operation takes.
+ * The latency of an operation is measured from the time that it should have started according to
+ * the schedule, so time spent waiting for a free worker is included in the latency (no coordinated
+ * omission).
+ */
+public class OpenLoopLoadGenerator {
+  private static final Log log = LogFactory.getLog(OpenLoopLoadGenerator.class);
+
+  /** A run is saturated if it completed less than this fraction of the target rate. */
+  private static final double SATURATION_THRESHOLD = 0.95D;
+
+  public static final class Result {
+    private final double targetRate;
+    private final long completed;
+    private final long errors;
+    private final long elapsedNanos;
+    private final Histogram latencies;
+
+    private Result(double targetRate, long completed, long errors, long elapsedNanos,
+        Histogram latencies) {
+      this.targetRate = targetRate;
+      this.completed = completed;
+      this.errors = errors;
+      this.elapsedNanos = elapsedNanos;
+      this.latencies = latencies;
+    }
+
+    public double getTargetRate() {
+      return targetRate;
+    }
+
+    public double getAchievedRate() {
+      return elapsedNanos == 0L ? 0D : completed * 1000000000D / elapsedNanos;
+    }
+
+    public long getCompleted() {
+      return completed;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    /**
+     * @return the latencies in nanoseconds, measured from the intended start time
+     */
+    public Histogram getLatencies() {
+      return latencies;
+    }
+
+    public boolean isSaturated() {
+      return getAchievedRate() < targetRate * SATURATION_THRESHOLD;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "target %.0f ops/s, achieved %.0f ops/s, %d errors, latency (us) p50 %.0f p99 %.0f p99.9 %.0f max %.0f%s",
+          targetRate, getAchievedRate(), errors, latencies.getValueAtPercentile(50D) / 1000D,
+          latencies.getValueAtPercentile(99D) / 1000D,
+          latencies.getValueAtPercentile(99.9D) / 1000D, latencies.getMaxValue() / 1000D,
+          isSaturated() ? " (saturated)" : "");
+    }
+  }
+
+  private final Runnable operation;
+  private final int maxConcurrency;
+
+  /**
+   * @param operation the operation to execute
+   * @param maxConcurrency the maximum number of operations that may be executing at the same time
+   */
+  public OpenLoopLoadGenerator(Runnable operation, int maxConcurrency) {
+    this.operation = operation;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  /**
+   * Executes the operation at the given rate for the given duration and waits until all scheduled
+   * operations have finished.
+   */
+  public Result run(double opsPerSecond, long duration, TimeUnit unit) throws InterruptedException {
+    Histogram latencies = new ConcurrentHistogram(3);
+    AtomicLong completed = new AtomicLong();
+    AtomicLong errors = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency);
+    double intervalNanos = 1000000000D / opsPerSecond;
+    long startTime = System.nanoTime();
+    long endTime = startTime + unit.toNanos(duration);
+    try {
+      for (long i = 0L;; i++) {
+        long intendedStartTime = startTime + (long) (i * intervalNanos);
+        if (intendedStartTime >= endTime) {
+          break;
+        }
+        long wait;
+        while ((wait = intendedStartTime - System.nanoTime()) > 0L) {
+          LockSupport.parkNanos(wait);
+        }
+        executor.execute(() -> {
+          try {
+            operation.run();
+            completed.incrementAndGet();
+          } catch (Throwable t) {
+            errors.incrementAndGet();
+            log.debug("Operation failed", t);
+          } finally {
+            latencies.recordValue(System.nanoTime() - intendedStartTime);
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+    }
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    Result result = new Result(opsPerSecond, completed.get(), errors.get(),
+        System.nanoTime() - startTime, latencies);
+    log.info(result);
+    return result;
+  }
+
+  /**
+   * Runs the operation at increasing rates until the generator is saturated or the maximum rate
+   * has been reached. The last run that was not saturated is the throughput knee.
+   *
+   * @return the results of all runs in the order that they were executed
+   */
+  public List<Result> findKnee(double startRate, double rateStep, double maxRate, long duration,
+      TimeUnit unit) throws InterruptedException {
+    if (rateStep <= 0D) {
+      throw new IllegalArgumentException("rateStep must be positive");
+    }
+    List<Result> results = new ArrayList<>();
+    for (double rate = startRate; rate <= maxRate; rate += rateStep) {
+      Result result = run(rate, duration, unit);
+      results.add(result);
+      if (result.isSaturated()) {
+        break;
+      }
+    }
+    return results;
+  }
+
+}
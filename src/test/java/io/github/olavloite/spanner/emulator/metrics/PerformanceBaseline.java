@@ -0,0 +1,169 @@
+package io.github.olavloite.spanner.emulator.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONObject;
+import io.github.olavloite.spanner.emulator.AbstractSpannerTest;
+import io.github.olavloite.spanner.emulator.util.NetworkProfile;
+
+/**
+ * Compares the throughput and p99 latency of named scenarios with a baseline from an earlier run.
+ * The baseline is stored in <code>baseline.json</code> and the results of the current run in
+ * <code>latest.json</code> in the directory given by <code>-Dbaseline.dir</code> (default
+ * <code>target/perf-baselines</code>). A scenario that is not in the baseline yet is added to it,
+ * and <code>-Dbaseline.update=true</code> replaces the baseline of all scenarios that are run.
+ *
+ * <p>
+ * A scenario has regressed if its throughput is lower, or its p99 latency is higher, than the
+ * baseline by more than the tolerance that is given by <code>-Dbaseline.tolerance</code> (default
+ * 0.2, i.e. 20%). What happens with a regression is set with <code>-Dbaseline</code>:
+ * <code>warn</code> (default) logs a warning, <code>fail</code> fails the test and
+ * <code>off</code> disables the comparison.
+ *
+ * <p>
+ * The results depend on where the scenario runs, so the host and the network profile are added to
+ * the name of each scenario, and a run against another host is compared with its own baseline.
+ */
+public class PerformanceBaseline {
+  private static final Log log = LogFactory.getLog(PerformanceBaseline.class);
+
+  private static final String DEFAULT_DIRECTORY = "target/perf-baselines";
+  private static final double DEFAULT_TOLERANCE = 0.2D;
+  private static final String THROUGHPUT = "throughput";
+  private static final String P99_MILLIS = "p99Millis";
+
+  public enum Mode {
+    OFF, WARN, FAIL;
+  }
+
+  private static final JSONObject LATEST = new JSONObject();
+
+  private PerformanceBaseline() {}
+
+  public static Mode getMode() {
+    String mode = System.getProperty("baseline", "warn");
+    try {
+      return Mode.valueOf(mode.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid value for -Dbaseline: %s. Valid values are %s", mode,
+          Arrays.toString(Mode.values()).toLowerCase()), e);
+    }
+  }
+
+  public static double getTolerance() {
+    return Double.parseDouble(
+        System.getProperty("baseline.tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+  }
+
+  private static File getDirectory() {
+    return new File(System.getProperty("baseline.dir", DEFAULT_DIRECTORY));
+  }
+
+  /**
+   * Compares a scenario with the baseline, and fails with an {@link AssertionError} if it has
+   * regressed and the mode is {@link Mode#FAIL}.
+   *
+   * @param throughput the throughput in operations per second, or {@link Double#NaN} if the
+   *        scenario has no throughput
+   * @param p99Millis the p99 latency in milliseconds, or {@link Double#NaN} if the scenario has no
+   *        latency
+   */
+  public static void check(String scenario, double throughput, double p99Millis) {
+    String regressions = compare(scenario, throughput, p99Millis);
+    if (regressions != null && getMode() == Mode.FAIL) {
+      throw new AssertionError(regressions);
+    }
+  }
+
+  /**
+   * Compares a scenario with the baseline, and logs a warning if it has regressed.
+   *
+   * @return a description of the regressions, or <code>null</code> if the scenario did not regress
+   */
+  public static synchronized String compare(String scenario, double throughput,
+      double p99Millis) {
+    if (getMode() == Mode.OFF) {
+      return null;
+    }
+    scenario = scenario + " host=" + AbstractSpannerTest.getHost();
+    NetworkProfile profile = NetworkProfile.fromSystemProperties();
+    if (profile != null) {
+      scenario = scenario + " network=" + profile.getName();
+    }
+    JSONObject result = new JSONObject();
+    if (isValid(throughput)) {
+      result.put(THROUGHPUT, throughput);
+    }
+    if (isValid(p99Millis)) {
+      result.put(P99_MILLIS, p99Millis);
+    }
+    LATEST.put(scenario, result);
+    write("latest.json", LATEST);
+
+    JSONObject baselines = read("baseline.json");
+    JSONObject baseline = baselines.optJSONObject(scenario);
+    if (baseline == null || Boolean.getBoolean("baseline.update")) {
+      baselines.put(scenario, result);
+      write("baseline.json", baselines);
+      log.info("Stored baseline for " + scenario + ": " + result);
+      return null;
+    }
+    double tolerance = getTolerance();
+    List<String> regressions = new ArrayList<>();
+    double baselineThroughput = baseline.optDouble(THROUGHPUT);
+    if (isValid(throughput) && isValid(baselineThroughput)
+        && throughput < baselineThroughput * (1D - tolerance)) {
+      regressions.add(String.format("throughput %.1f ops/s is lower than baseline %.1f ops/s",
+          throughput, baselineThroughput));
+    }
+    double baselineP99 = baseline.optDouble(P99_MILLIS);
+    if (isValid(p99Millis) && isValid(baselineP99) && p99Millis > baselineP99 * (1D + tolerance)) {
+      regressions.add(
+          String.format("p99 %.3f ms is higher than baseline %.3f ms", p99Millis, baselineP99));
+    }
+    if (regressions.isEmpty()) {
+      log.info("No regression for " + scenario + ": " + result);
+      return null;
+    }
+    String message = String.format("Performance regression in %s (tolerance %.0f%%): %s", scenario,
+        tolerance * 100D, String.join(", ", regressions));
+    log.warn(message);
+    return message;
+  }
+
+  private static boolean isValid(double value) {
+    return !Double.isNaN(value) && !Double.isInfinite(value) && value > 0D;
+  }
+
+  private static JSONObject read(String name) {
+    File file = new File(getDirectory(), name);
+    if (!file.exists()) {
+      return new JSONObject();
+    }
+    try {
+      return new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read " + file.getAbsolutePath(), e);
+    }
+  }
+
+  private static void write(String name, JSONObject json) {
+    File directory = getDirectory();
+    directory.mkdirs();
+    File file = new File(directory, name);
+    try {
+      Files.write(file.toPath(), json.toString(2).getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      log.warn("Could not write " + file.getAbsolutePath(), e);
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+package io.github.olavloite.spanner.emulator.metrics;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Latency histograms of all RPCs that are executed during a test run, grouped by RPC name and test
+ * tag. Recording is enabled with <code>-Dlatencies=true</code>. When the JVM exits, a percentile
+ * table is written to the log and to <code>latencies.txt</code>, and the full distribution of each
+ * RPC is written to <code>&lt;rpc&gt;.hgrm</code> in the directory given by
+ * <code>-Dlatencies.dir</code> (default <code>target/latencies</code>). All values are in
+ * microseconds.
+ */
+public class RpcLatencies {
+  private static final Log log = LogFactory.getLog(RpcLatencies.class);
+
+  private static final String DEFAULT_DIRECTORY = "target/latencies";
+  private static final String NO_TAG = "";
+  private static final int SIGNIFICANT_DIGITS = 3;
+  private static final double NANOS_PER_MICRO = 1000D;
+
+  private static final InheritableThreadLocal<String> TAG = new InheritableThreadLocal<String>() {
+    @Override
+    protected String initialValue() {
+      return NO_TAG;
+    }
+  };
+
+  /** RPC name -> test tag -> histogram */
+  private static final ConcurrentMap<String, ConcurrentMap<String, Histogram>> HISTOGRAMS =
+      new ConcurrentHashMap<>();
+
+  static {
+    if (isEnabled()) {
+      Runtime.getRuntime().addShutdownHook(new Thread(RpcLatencies::writeReport));
+    }
+  }
+
+  private RpcLatencies() {}
+
+  public static boolean isEnabled() {
+    return Boolean.getBoolean("latencies");
+  }
+
+  public static String getTag() {
+    return TAG.get();
+  }
+
+  public static void setTag(String tag) {
+    TAG.set(tag == null ? NO_TAG : tag);
+  }
+
+  static void record(String rpc, String tag, long nanos) {
+    HISTOGRAMS.computeIfAbsent(rpc, r -> new ConcurrentHashMap<>())
+        .computeIfAbsent(tag, t -> new ConcurrentHistogram(SIGNIFICANT_DIGITS)).recordValue(nanos);
+  }
+
+  /**
+   * @return the latencies of each RPC, summed over all tags, sorted by RPC name
+   */
+  public static Map<String, Histogram> getTotals() {
+    Map<String, Histogram> totals = new TreeMap<>();
+    for (Entry<String, ConcurrentMap<String, Histogram>> rpc : HISTOGRAMS.entrySet()) {
+      Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+      rpc.getValue().values().forEach(total::add);
+      totals.put(rpc.getKey(), total);
+    }
+    return totals;
+  }
+
+  /**
+   * @return the latencies of each RPC that was executed with the given tag, sorted by RPC name
+   */
+  public static Map<String, Histogram> getByTag(String tag) {
+    Map<String, Histogram> res = new TreeMap<>();
+    for (Entry<String, ConcurrentMap<String, Histogram>> rpc : HISTOGRAMS.entrySet()) {
+      Histogram histogram = rpc.getValue().get(tag);
+      if (histogram != null) {
+        res.put(rpc.getKey(), histogram.copy());
+      }
+    }
+    return res;
+  }
+
+  private static void writeReport() {
+    if (HISTOGRAMS.isEmpty()) {
+      return;
+    }
+    Map<String, Histogram> totals = getTotals();
+    StringBuilder table = new StringBuilder("RPC latencies (us)\n");
+    appendHeader(table);
+    totals.forEach((rpc, histogram) -> appendRow(table, rpc, histogram));
+    log.info(table);
+
+    File directory = new File(System.getProperty("latencies.dir", DEFAULT_DIRECTORY));
+    directory.mkdirs();
+    try (PrintStream out = new PrintStream(new File(directory, "latencies.txt"), "UTF-8")) {
+      out.print(table);
+      out.println();
+      out.println("RPC latencies per test (us)");
+      StringBuilder perTag = new StringBuilder();
+      appendHeader(perTag);
+      new TreeMap<>(HISTOGRAMS).forEach((rpc, tags) -> new TreeMap<>(tags)
+          .forEach((tag, histogram) -> appendRow(perTag,
+              rpc + " " + (NO_TAG.equals(tag) ? "-" : tag), histogram)));
+      out.print(perTag);
+      for (Entry<String, Histogram> entry : totals.entrySet()) {
+        try (PrintStream hgrm =
+            new PrintStream(new File(directory, entry.getKey() + ".hgrm"), "UTF-8")) {
+          entry.getValue().outputPercentileDistribution(hgrm, NANOS_PER_MICRO);
+        }
+      }
+      log.info("Wrote RPC latencies to " + directory.getAbsolutePath());
+    } catch (FileNotFoundException | UnsupportedEncodingException e) {
+      log.warn("Could not write RPC latencies to " + directory.getAbsolutePath(), e);
+    }
+  }
+
+  private static void appendHeader(StringBuilder builder) {
+    builder.append(String.format("%-60s %10s %10s %10s %10s %10s %10s%n", "RPC", "count", "p50",
+        "p90", "p99", "p99.9", "max"));
+  }
+
+  private static void appendRow(StringBuilder builder, String name, Histogram histogram) {
+    builder.append(String.format("%-60s %10d %10.0f %10.0f %10.0f %10.0f %10.0f%n", name,
+        histogram.getTotalCount(), micros(histogram.getValueAtPercentile(50D)),
+        micros(histogram.getValueAtPercentile(90D)), micros(histogram.getValueAtPercentile(99D)),
+        micros(histogram.getValueAtPercentile(99.9D)), micros(histogram.getMaxValue())));
+  }
+
+  private static double micros(long nanos) {
+    return nanos / NANOS_PER_MICRO;
+  }
+
+}
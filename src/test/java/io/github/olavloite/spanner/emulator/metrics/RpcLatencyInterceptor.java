@@ -0,0 +1,45 @@
+package io.github.olavloite.spanner.emulator.metrics;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * Records the latency of each RPC in {@link RpcLatencies}. The latency is measured from the start
+ * of the call until the call is closed, which for streaming RPCs means that the whole stream has
+ * been received.
+ */
+public class RpcLatencyInterceptor implements ClientInterceptor {
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+      CallOptions callOptions, Channel next) {
+    String rpc = getRpcName(method);
+    String tag = RpcLatencies.getTag();
+    return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        long startTime = System.nanoTime();
+        super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+          @Override
+          public void onClose(Status status, Metadata trailers) {
+            RpcLatencies.record(rpc, tag, System.nanoTime() - startTime);
+            super.onClose(status, trailers);
+          }
+        }, headers);
+      }
+    };
+  }
+
+  private static String getRpcName(MethodDescriptor<?, ?> method) {
+    String name = method.getFullMethodName();
+    return name.substring(name.lastIndexOf('/') + 1);
+  }
+
+}
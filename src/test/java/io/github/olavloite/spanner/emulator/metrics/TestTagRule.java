@@ -0,0 +1,50 @@
+package io.github.olavloite.spanner.emulator.metrics;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Tags all RPCs that are executed by a test class or test method with the name of the class or
+ * method. Use as a {@link org.junit.ClassRule} to tag the setup and teardown of a class, and as a
+ * {@link org.junit.Rule} to tag the test methods. The wall time of the class and the methods is
+ * recorded in {@link TestTimings} if that is enabled.
+ */
+public class TestTagRule implements TestRule {
+
+  @Override
+  public Statement apply(Statement base, Description description) {
+    String tag = description.getMethodName() == null ? description.getTestClass().getSimpleName()
+        : description.getTestClass().getSimpleName() + "." + description.getMethodName();
+    return new Statement() {
+      @Override
+      public void evaluate() throws Throwable {
+        String previous = RpcLatencies.getTag();
+        RpcLatencies.setTag(tag);
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+          base.evaluate();
+          failed = false;
+        } finally {
+          RpcLatencies.setTag(previous);
+          if (TestTimings.isEnabled()) {
+            record(description, startNanos, System.nanoTime(), failed);
+          }
+        }
+      }
+    };
+  }
+
+  private static void record(Description description, long startNanos, long endNanos,
+      boolean failed) {
+    String testClass = description.getTestClass().getSimpleName();
+    if (description.getMethodName() == null) {
+      TestTimings.recordClass(testClass, startNanos, endNanos);
+    } else {
+      TestTimings.recordMethod(testClass, description.getMethodName(), startNanos, endNanos,
+          failed);
+    }
+  }
+
+}
@@ -0,0 +1,179 @@
+package io.github.olavloite.spanner.emulator.metrics;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Wall time of the setup, teardown and test methods of each test class, together with the number
+ * of RPCs that each of them executed. Recording is enabled with <code>-Dtimings=true</code>. The
+ * times are recorded by {@link TestTagRule}: the setup of a class is the time between the start of
+ * the class and the start of its first test method, and the teardown is the time between the end
+ * of the last test method and the end of the class. The time of a test method includes its
+ * <code>@Before</code> and <code>@After</code> methods.
+ *
+ * <p>
+ * When the JVM exits, all timings are written to <code>timings.json</code> and the slowest steps
+ * are written to the log and to <code>slowest.txt</code> in the directory given by
+ * <code>-Dtimings.dir</code> (default <code>target/timings</code>). The number of slowest steps is
+ * set with <code>-Dtimings.top</code> (default 10).
+ */
+public class TestTimings {
+  private static final Log log = LogFactory.getLog(TestTimings.class);
+
+  private static final String DEFAULT_DIRECTORY = "target/timings";
+  private static final int DEFAULT_TOP = 10;
+
+  private static final class MethodTiming {
+    private final String name;
+    private final long startNanos;
+    private final long endNanos;
+    private final boolean failed;
+
+    private MethodTiming(String name, long startNanos, long endNanos, boolean failed) {
+      this.name = name;
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+      this.failed = failed;
+    }
+  }
+
+  private static final class ClassTiming {
+    private final List<MethodTiming> methods = new ArrayList<>();
+    private long startNanos;
+    private long endNanos;
+    private boolean finished;
+
+    private synchronized long getSetupNanos() {
+      long firstMethodStart =
+          methods.stream().mapToLong(m -> m.startNanos).min().orElse(endNanos);
+      return firstMethodStart - startNanos;
+    }
+
+    private synchronized long getTeardownNanos() {
+      long lastMethodEnd = methods.stream().mapToLong(m -> m.endNanos).max().orElse(startNanos);
+      return endNanos - lastMethodEnd;
+    }
+  }
+
+  /** A step in the slowest list: the setup, teardown or a test method of a class. */
+  private static final class Step {
+    private final String name;
+    private final long nanos;
+    private final long rpcs;
+
+    private Step(String name, long nanos, long rpcs) {
+      this.name = name;
+      this.nanos = nanos;
+      this.rpcs = rpcs;
+    }
+  }
+
+  private static final ConcurrentMap<String, ClassTiming> CLASSES = new ConcurrentHashMap<>();
+
+  static {
+    if (isEnabled()) {
+      Runtime.getRuntime().addShutdownHook(new Thread(TestTimings::writeReport));
+    }
+  }
+
+  private TestTimings() {}
+
+  public static boolean isEnabled() {
+    return Boolean.getBoolean("timings");
+  }
+
+  static void recordClass(String testClass, long startNanos, long endNanos) {
+    ClassTiming timing = CLASSES.computeIfAbsent(testClass, c -> new ClassTiming());
+    synchronized (timing) {
+      timing.startNanos = startNanos;
+      timing.endNanos = endNanos;
+      timing.finished = true;
+    }
+  }
+
+  static void recordMethod(String testClass, String method, long startNanos, long endNanos,
+      boolean failed) {
+    ClassTiming timing = CLASSES.computeIfAbsent(testClass, c -> new ClassTiming());
+    synchronized (timing) {
+      timing.methods.add(new MethodTiming(method, startNanos, endNanos, failed));
+    }
+  }
+
+  private static long countRpcs(String tag) {
+    return RpcLatencies.getByTag(tag).values().stream().mapToLong(Histogram::getTotalCount).sum();
+  }
+
+  private static long millis(long nanos) {
+    return nanos / 1000000L;
+  }
+
+  private static void writeReport() {
+    if (CLASSES.isEmpty()) {
+      return;
+    }
+    JSONArray classes = new JSONArray();
+    List<Step> steps = new ArrayList<>();
+    for (Map.Entry<String, ClassTiming> entry : new TreeMap<>(CLASSES).entrySet()) {
+      String testClass = entry.getKey();
+      ClassTiming timing = entry.getValue();
+      synchronized (timing) {
+        if (!timing.finished) {
+          continue;
+        }
+        long setupNanos = timing.getSetupNanos();
+        long teardownNanos = timing.getTeardownNanos();
+        JSONArray methods = new JSONArray();
+        for (MethodTiming method : timing.methods) {
+          long rpcs = countRpcs(testClass + "." + method.name);
+          methods.put(new JSONObject().put("method", method.name)
+              .put("millis", millis(method.endNanos - method.startNanos)).put("rpcs", rpcs)
+              .put("failed", method.failed));
+          steps.add(new Step(testClass + "." + method.name, method.endNanos - method.startNanos,
+              rpcs));
+        }
+        long classRpcs = countRpcs(testClass);
+        classes.put(new JSONObject().put("class", testClass)
+            .put("totalMillis", millis(timing.endNanos - timing.startNanos))
+            .put("setupMillis", millis(setupNanos)).put("teardownMillis", millis(teardownNanos))
+            .put("setupAndTeardownRpcs", classRpcs).put("methods", methods));
+        steps.add(new Step(testClass + " (setup)", setupNanos, -1L));
+        steps.add(new Step(testClass + " (teardown)", teardownNanos, -1L));
+      }
+    }
+    steps.sort(Comparator.comparingLong((Step s) -> s.nanos).reversed());
+    int top = Integer.getInteger("timings.top", DEFAULT_TOP);
+    StringBuilder slowest = new StringBuilder(String.format("Slowest %d test steps%n", top));
+    slowest.append(String.format("%-80s %10s %10s%n", "step", "ms", "rpcs"));
+    for (Step step : steps.subList(0, Math.min(top, steps.size()))) {
+      slowest.append(String.format("%-80s %10d %10s%n", step.name, millis(step.nanos),
+          step.rpcs < 0L ? "-" : String.valueOf(step.rpcs)));
+    }
+    log.info(slowest);
+
+    File directory = new File(System.getProperty("timings.dir", DEFAULT_DIRECTORY));
+    directory.mkdirs();
+    try (PrintStream json = new PrintStream(new File(directory, "timings.json"), "UTF-8");
+        PrintStream txt = new PrintStream(new File(directory, "slowest.txt"), "UTF-8")) {
+      json.print(new JSONObject().put("classes", classes).toString(2));
+      txt.print(slowest);
+      log.info("Wrote test timings to " + directory.getAbsolutePath());
+    } catch (FileNotFoundException | UnsupportedEncodingException e) {
+      log.warn("Could not write test timings to " + directory.getAbsolutePath(), e);
+    }
+  }
+
+}
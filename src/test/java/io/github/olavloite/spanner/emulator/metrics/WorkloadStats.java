@@ -0,0 +1,63 @@
+package io.github.olavloite.spanner.emulator.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Throughput and latency statistics of a concurrent workload. The session wait time is the time
+ * that an operation spent waiting for the client to hand out a read context or transaction, which
+ * includes waiting for a free session in the session pool.
+ */
+public class WorkloadStats {
+  private final Histogram latencies = new ConcurrentHistogram(3);
+  private final Histogram sessionWaits = new ConcurrentHistogram(3);
+  private final long startTime = System.nanoTime();
+  private volatile long endTime;
+
+  public void recordLatency(long nanos) {
+    latencies.recordValue(nanos);
+  }
+
+  public void recordSessionWait(long nanos) {
+    sessionWaits.recordValue(nanos);
+  }
+
+  /** Marks the end of the workload. The throughput is calculated up to this moment. */
+  public void finish() {
+    endTime = System.nanoTime();
+  }
+
+  public Histogram getLatencies() {
+    return latencies;
+  }
+
+  public Histogram getSessionWaits() {
+    return sessionWaits;
+  }
+
+  public long getElapsedNanos() {
+    return (endTime == 0L ? System.nanoTime() : endTime) - startTime;
+  }
+
+  public double getThroughput() {
+    return latencies.getTotalCount() * 1000000000D / getElapsedNanos();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder res = new StringBuilder(String.format("%d ops in %d ms (%.0f ops/s), latency %s",
+        latencies.getTotalCount(), getElapsedNanos() / 1000000L, getThroughput(),
+        percentiles(latencies)));
+    if (sessionWaits.getTotalCount() > 0L) {
+      res.append(", session wait ").append(percentiles(sessionWaits));
+    }
+    return res.toString();
+  }
+
+  private static String percentiles(Histogram histogram) {
+    return String.format("(us) p50 %.0f p99 %.0f p99.9 %.0f max %.0f",
+        histogram.getValueAtPercentile(50D) / 1000D, histogram.getValueAtPercentile(99D) / 1000D,
+        histogram.getValueAtPercentile(99.9D) / 1000D, histogram.getMaxValue() / 1000D);
+  }
+
+}
@@ -29,8 +29,7 @@ public class FunctionsTest extends AbstractSpannerTest {
 
   @BeforeClass
   public static void before() {
-    createNumberTable();
-    insertTestNumbers(NUMBER_OF_ROWS);
+    useFixture(numberTableFixture(NUMBER_OF_ROWS, false));
   }
 
   @Test
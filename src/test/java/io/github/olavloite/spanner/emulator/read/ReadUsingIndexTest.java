@@ -6,7 +6,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import com.google.cloud.spanner.Key;
@@ -20,15 +19,7 @@ public class ReadUsingIndexTest extends AbstractSpannerTest {
 
   @BeforeClass
   public static void before() {
-    createNumberTable();
-    createIndexOnNumberName();
-    insertTestNumbers(NUMBER_OF_ROWS);
-  }
-
-  @AfterClass
-  public static void after() {
-    dropIndexNumberName();
-    dropNumberTable();
+    useFixture(numberTableFixture(NUMBER_OF_ROWS, true));
   }
 
   @Test
@@ -2,7 +2,6 @@ package io.github.olavloite.spanner.emulator.read;
 
 import static org.junit.Assert.assertEquals;
 import java.util.Arrays;
-import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import com.google.cloud.spanner.Key;
@@ -17,13 +16,7 @@ public class SimpleReadTest extends AbstractSpannerTest {
 
   @BeforeClass
   public static void before() {
-    createNumberTable();
-    insertTestNumbers(NUMBER_OF_ROWS);
-  }
-
-  @AfterClass
-  public static void after() {
-    dropNumberTable();
+    useFixture(numberTableFixture(NUMBER_OF_ROWS, false));
   }
 
   @Test
@@ -11,8 +11,7 @@ public class SqlTest extends AbstractSpannerTest {
 
   @BeforeClass
   public static void beforeClass() {
-    createNumberTable();
-    insertTestNumbers(1000L);
+    useFixture(numberTableFixture(1000L, false));
   }
 
   @Test
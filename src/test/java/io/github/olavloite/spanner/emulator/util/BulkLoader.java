@@ -0,0 +1,274 @@
+package io.github.olavloite.spanner.emulator.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongFunction;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.Op;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Value;
+import com.google.common.collect.Iterables;
+
+/**
+ * Loads large numbers of rows into a database. The mutations are split into chunks that stay
+ * below a maximum number of mutated cells and a maximum (estimated) number of bytes, and the
+ * chunks are committed in parallel by a bounded number of worker threads.
+ */
+public class BulkLoader {
+  private static final Log log = LogFactory.getLog(BulkLoader.class);
+
+  /** Cloud Spanner allows at most 20,000 mutated cells in one commit. */
+  public static final int DEFAULT_MAX_CELLS_PER_CHUNK = 10000;
+  public static final long DEFAULT_MAX_BYTES_PER_CHUNK = 4L * 1024L * 1024L;
+  public static final int DEFAULT_PARALLELISM = 8;
+
+  public enum CommitMode {
+    /** Commit each chunk in a read/write transaction. */
+    TRANSACTION,
+    /** Commit each chunk with {@link DatabaseClient#writeAtLeastOnce(Iterable)}. */
+    WRITE_AT_LEAST_ONCE;
+  }
+
+  public static final class Result {
+    private final long rows;
+    private final long chunks;
+    private final long elapsedNanos;
+
+    private Result(long rows, long chunks, long elapsedNanos) {
+      this.rows = rows;
+      this.chunks = chunks;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getChunks() {
+      return chunks;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedNanos / 1000000L;
+    }
+
+    public double getRowsPerSecond() {
+      return elapsedNanos == 0L ? 0D : rows * 1000000000D / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d rows in %d chunks in %d ms (%.0f rows/s)", rows, chunks,
+          getElapsedMillis(), getRowsPerSecond());
+    }
+  }
+
+  private final DatabaseClient client;
+  private int maxCellsPerChunk = DEFAULT_MAX_CELLS_PER_CHUNK;
+  private long maxBytesPerChunk = DEFAULT_MAX_BYTES_PER_CHUNK;
+  private int parallelism = DEFAULT_PARALLELISM;
+  private CommitMode commitMode = CommitMode.TRANSACTION;
+
+  public BulkLoader(DatabaseClient client) {
+    this.client = client;
+  }
+
+  public BulkLoader setMaxCellsPerChunk(int maxCellsPerChunk) {
+    if (maxCellsPerChunk <= 0) {
+      throw new IllegalArgumentException("maxCellsPerChunk must be positive");
+    }
+    this.maxCellsPerChunk = maxCellsPerChunk;
+    return this;
+  }
+
+  public BulkLoader setMaxBytesPerChunk(long maxBytesPerChunk) {
+    if (maxBytesPerChunk <= 0L) {
+      throw new IllegalArgumentException("maxBytesPerChunk must be positive");
+    }
+    this.maxBytesPerChunk = maxBytesPerChunk;
+    return this;
+  }
+
+  public BulkLoader setParallelism(int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public BulkLoader setCommitMode(CommitMode commitMode) {
+    this.commitMode = commitMode;
+    return this;
+  }
+
+  /**
+   * Loads the rows <code>start</code> to <code>start + count - 1</code>. The mutation for each row
+   * is generated when it is needed, so the rows are never all in memory at the same time.
+   */
+  public Result load(long start, long count, LongFunction<Mutation> generator) {
+    return load(new Iterable<Mutation>() {
+      @Override
+      public Iterator<Mutation> iterator() {
+        return new Iterator<Mutation>() {
+          private long current = start;
+
+          @Override
+          public boolean hasNext() {
+            return current < start + count;
+          }
+
+          @Override
+          public Mutation next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return generator.apply(current++);
+          }
+        };
+      }
+    });
+  }
+
+  /**
+   * Commits all the given mutations. Chunks that have been committed stay committed if a later
+   * chunk fails. Mutations that fit in a single chunk are committed on the calling thread.
+   */
+  public Result load(Iterable<Mutation> mutations) {
+    long startTime = System.nanoTime();
+    long rows = 0L;
+    long chunks = 0L;
+    // Allow one chunk per worker to be built while the workers are committing
+    Semaphore inFlight = new Semaphore(parallelism * 2);
+    ExecutorService executor = null;
+    List<Future<Void>> futures = new ArrayList<>();
+    try {
+      List<Mutation> chunk = new ArrayList<>();
+      long cells = 0L;
+      long bytes = 0L;
+      for (Mutation mutation : mutations) {
+        int mutationCells = countCells(mutation);
+        long mutationBytes = estimateBytes(mutation);
+        if (!chunk.isEmpty() && (cells + mutationCells > maxCellsPerChunk
+            || bytes + mutationBytes > maxBytesPerChunk)) {
+          if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism);
+          }
+          futures.add(submit(executor, inFlight, chunk));
+          chunks++;
+          chunk = new ArrayList<>();
+          cells = 0L;
+          bytes = 0L;
+        }
+        chunk.add(mutation);
+        cells += mutationCells;
+        bytes += mutationBytes;
+        rows++;
+      }
+      if (!chunk.isEmpty()) {
+        if (executor == null) {
+          commit(chunk);
+        } else {
+          futures.add(submit(executor, inFlight, chunk));
+        }
+        chunks++;
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      throw SpannerExceptionFactory.newSpannerException(e);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+    Result result = new Result(rows, chunks, System.nanoTime() - startTime);
+    if (chunks > 1L) {
+      log.info("Loaded " + result);
+    } else {
+      log.debug("Loaded " + result);
+    }
+    return result;
+  }
+
+  private Future<Void> submit(ExecutorService executor, Semaphore inFlight, List<Mutation> chunk)
+      throws InterruptedException {
+    inFlight.acquire();
+    return executor.submit(() -> {
+      try {
+        commit(chunk);
+      } finally {
+        inFlight.release();
+      }
+      return null;
+    });
+  }
+
+  private void commit(List<Mutation> chunk) {
+    switch (commitMode) {
+      case WRITE_AT_LEAST_ONCE:
+        client.writeAtLeastOnce(chunk);
+        break;
+      case TRANSACTION:
+      default:
+        client.readWriteTransaction().run(transaction -> {
+          transaction.buffer(chunk);
+          return null;
+        });
+    }
+  }
+
+  private static int countCells(Mutation mutation) {
+    if (mutation.getOperation() == Op.DELETE) {
+      return 1;
+    }
+    return Iterables.size(mutation.getColumns());
+  }
+
+  /**
+   * Estimates the number of bytes that a mutation will use on the wire. Only string and bytes
+   * values are measured, all other values are counted as 8 bytes.
+   */
+  private static long estimateBytes(Mutation mutation) {
+    if (mutation.getOperation() == Op.DELETE) {
+      return mutation.getTable().length() + 8L;
+    }
+    long bytes = mutation.getTable().length();
+    for (String column : mutation.getColumns()) {
+      bytes += column.length();
+    }
+    for (Value value : mutation.getValues()) {
+      if (value.isNull()) {
+        bytes += 1L;
+        continue;
+      }
+      switch (value.getType().getCode()) {
+        case STRING:
+          bytes += value.getString().length();
+          break;
+        case BYTES:
+          bytes += value.getBytes().length();
+          break;
+        case ARRAY:
+          bytes += value.toString().length();
+          break;
+        default:
+          bytes += 8L;
+      }
+    }
+    return bytes;
+  }
+
+}
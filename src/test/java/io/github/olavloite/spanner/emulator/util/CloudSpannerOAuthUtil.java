@@ -5,16 +5,55 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.auth.Credentials;
 import com.google.auth.http.HttpTransportFactory;
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.NoCredentials;
 
+/**
+ * Credentials for the test harness. {@link #getCredentials(String, String)} returns one shared
+ * instance per key file for the whole JVM. The access token of the shared credentials is fetched
+ * when the credentials are first loaded and is refreshed in the background a few minutes before it
+ * expires, so that tests never wait for a token fetch. Hosts with the <code>http://</code> scheme
+ * are local backends that use plain text and no credentials.
+ */
 public class CloudSpannerOAuthUtil {
+  private static final Log log = LogFactory.getLog(CloudSpannerOAuthUtil.class);
+
+  /** The OAuth scopes that the Spanner client library requests. */
+  private static final List<String> SPANNER_SCOPES =
+      Arrays.asList("https://www.googleapis.com/auth/spanner.admin",
+          "https://www.googleapis.com/auth/spanner.data");
+  private static final long REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5L);
+  private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+
+  private static final Map<String, GoogleCredentials> CACHED_CREDENTIALS =
+      new ConcurrentHashMap<>();
+
+  private static final ScheduledExecutorService REFRESHER =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "credentials-refresher");
+        thread.setDaemon(true);
+        return thread;
+      });
+
   public static final HttpTransport HTTP_TRANSPORT = new NetHttpTransport();
 
   public static final HttpTransportFactory HTTP_TRANSPORT_FACTORY =
@@ -30,6 +69,68 @@ public class CloudSpannerOAuthUtil {
 
   private CloudSpannerOAuthUtil() {}
 
+  /**
+   * @return true if the host is a local backend that should be reached over plain text without
+   *         credentials, i.e. if the host uses the <code>http://</code> scheme
+   */
+  public static boolean isPlainText(String host) {
+    return host.toLowerCase().startsWith("http://");
+  }
+
+  /**
+   * @return {@link NoCredentials} for a plain text host, and the shared credentials of the key file
+   *         otherwise
+   */
+  public static Credentials getCredentials(String host, String credentialsPath) {
+    if (isPlainText(host)) {
+      return NoCredentials.getInstance();
+    }
+    return getCachedCredentials(credentialsPath);
+  }
+
+  /**
+   * Returns the JVM-wide credentials of the given key file. The credentials are scoped for Spanner,
+   * so the client library uses this instance and its access token instead of creating a scoped
+   * copy.
+   */
+  public static GoogleCredentials getCachedCredentials(String credentialsPath) {
+    if (credentialsPath == null || credentialsPath.length() == 0)
+      throw new IllegalArgumentException("credentialsPath may not be null or empty");
+    String key = new File(credentialsPath).toPath().toAbsolutePath().normalize().toString();
+    return CACHED_CREDENTIALS.computeIfAbsent(key, path -> {
+      GoogleCredentials credentials = getCredentialsFromFile(path);
+      if (credentials.createScopedRequired()) {
+        credentials = credentials.createScoped(SPANNER_SCOPES);
+      }
+      refresh(credentials, path);
+      return credentials;
+    });
+  }
+
+  /**
+   * Fetches a new access token and schedules the next refresh. A failed refresh is retried in the
+   * background; the client library will then fetch a token itself if it needs one earlier.
+   */
+  private static void refresh(GoogleCredentials credentials, String path) {
+    long delay;
+    try {
+      credentials.refresh();
+      AccessToken token = credentials.getAccessToken();
+      Date expiration = token == null ? null : token.getExpirationTime();
+      if (expiration == null) {
+        return;
+      }
+      delay = Math.max(expiration.getTime() - System.currentTimeMillis() - REFRESH_MARGIN_MILLIS,
+          RETRY_DELAY_MILLIS);
+      log.debug(String.format("Refreshed access token for %s, next refresh in %d s", path,
+          TimeUnit.MILLISECONDS.toSeconds(delay)));
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not refresh access token for " + path, e);
+      delay = RETRY_DELAY_MILLIS;
+    }
+    REFRESHER.schedule(() -> refresh(credentials, path), delay, TimeUnit.MILLISECONDS);
+  }
+
   public static GoogleCredentials getCredentialsFromFile(String credentialsPath) {
     if (credentialsPath == null || credentialsPath.length() == 0)
       throw new IllegalArgumentException("credentialsPath may not be null or empty");
@@ -0,0 +1,194 @@
+package io.github.olavloite.spanner.emulator.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import com.google.api.gax.longrunning.OperationFuture;
+import com.google.cloud.spanner.DatabaseAdminClient;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.protobuf.Timestamp;
+import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
+
+/**
+ * Collects DDL statements for one database and submits them as a single
+ * <code>UpdateDatabaseDdl</code> operation. Submitting does not wait for the long-running
+ * operation to finish, so the caller can do other work while the schema is being changed. Statements
+ * that are added while an operation is running are submitted in the next operation, after the
+ * running operation has finished.
+ *
+ * <p>
+ * The time that a batch takes is split into the time that the server spent on the schema change
+ * and the time that the client spent waiting for the operation to be polled after the change was
+ * done. The schema work is measured from the submission until the last commit timestamp that the
+ * server reports, and therefore assumes that the clocks of the client and the server are in sync.
+ */
+public class DdlBatch {
+  private static final Log log = LogFactory.getLog(DdlBatch.class);
+
+  public static final class Timings {
+    private long batches;
+    private long statements;
+    private long elapsedNanos;
+    private long schemaWorkNanos;
+    private long unknownNanos;
+
+    private void add(int statements, long elapsedNanos, long schemaWorkNanos) {
+      this.batches++;
+      this.statements += statements;
+      this.elapsedNanos += elapsedNanos;
+      if (schemaWorkNanos < 0L) {
+        this.unknownNanos += elapsedNanos;
+      } else {
+        this.schemaWorkNanos += schemaWorkNanos;
+      }
+    }
+
+    public long getBatches() {
+      return batches;
+    }
+
+    public long getStatements() {
+      return statements;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedNanos / 1000000L;
+    }
+
+    /**
+     * @return the time that the server spent on the schema changes
+     */
+    public long getSchemaWorkMillis() {
+      return schemaWorkNanos / 1000000L;
+    }
+
+    /**
+     * @return the time between the server finishing a schema change and the client noticing it
+     */
+    public long getPollingWaitMillis() {
+      return (elapsedNanos - schemaWorkNanos - unknownNanos) / 1000000L;
+    }
+
+    @Override
+    public String toString() {
+      String res = String.format(
+          "%d statements in %d batches in %d ms (%d ms schema work, %d ms waiting for polling",
+          statements, batches, getElapsedMillis(), getSchemaWorkMillis(), getPollingWaitMillis());
+      if (unknownNanos > 0L) {
+        res = res + String.format(", %d ms without commit timestamps", unknownNanos / 1000000L);
+      }
+      return res + ")";
+    }
+  }
+
+  private final DatabaseAdminClient client;
+  private final DatabaseId databaseId;
+  private final List<String> pending = new ArrayList<>();
+  private final Timings timings = new Timings();
+
+  private OperationFuture<Void, UpdateDatabaseDdlMetadata> operation;
+  private int operationStatements;
+  private long submitNanos;
+  private long submitMillis;
+
+  public DdlBatch(DatabaseAdminClient client, DatabaseId databaseId) {
+    this.client = client;
+    this.databaseId = databaseId;
+  }
+
+  public synchronized DdlBatch add(String... ddl) {
+    return add(Arrays.asList(ddl));
+  }
+
+  public synchronized DdlBatch add(Iterable<String> ddl) {
+    ddl.forEach(pending::add);
+    return this;
+  }
+
+  /**
+   * @return true if there are statements that have not yet been submitted, or an operation that
+   *         has not yet been waited for
+   */
+  public synchronized boolean hasWork() {
+    return !pending.isEmpty() || operation != null;
+  }
+
+  /**
+   * Submits all pending statements as one operation without waiting for it to finish. Waits for
+   * the previous operation first if that is still running.
+   */
+  public synchronized void submit() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    await();
+    List<String> statements = new ArrayList<>(pending);
+    pending.clear();
+    submitNanos = System.nanoTime();
+    submitMillis = System.currentTimeMillis();
+    operationStatements = statements.size();
+    operation = client.updateDatabaseDdl(databaseId.getInstanceId().getInstance(),
+        databaseId.getDatabase(), statements, null);
+  }
+
+  /**
+   * Waits for the running operation to finish. Pending statements that have not been submitted
+   * are not executed.
+   */
+  public synchronized void await() {
+    if (operation == null) {
+      return;
+    }
+    OperationFuture<Void, UpdateDatabaseDdlMetadata> running = operation;
+    operation = null;
+    try {
+      running.get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw SpannerExceptionFactory.newSpannerException(e);
+    }
+    long elapsedNanos = System.nanoTime() - submitNanos;
+    long schemaWorkNanos = getSchemaWorkNanos(running, elapsedNanos);
+    timings.add(operationStatements, elapsedNanos, schemaWorkNanos);
+    if (log.isDebugEnabled()) {
+      log.debug(String.format("%s: %d statements in %d ms (%s ms schema work)",
+          databaseId.getDatabase(), operationStatements, elapsedNanos / 1000000L,
+          schemaWorkNanos < 0L ? "unknown" : String.valueOf(schemaWorkNanos / 1000000L)));
+    }
+  }
+
+  /** Submits all pending statements and waits for them to be executed. */
+  public synchronized void execute() {
+    submit();
+    await();
+  }
+
+  public synchronized Timings getTimings() {
+    return timings;
+  }
+
+  /**
+   * @return the time from the submission until the last commit timestamp of the operation, or -1
+   *         if the server did not return any commit timestamps
+   */
+  private long getSchemaWorkNanos(OperationFuture<Void, UpdateDatabaseDdlMetadata> operation,
+      long elapsedNanos) {
+    UpdateDatabaseDdlMetadata metadata;
+    try {
+      metadata = operation.peekMetadata().get();
+    } catch (InterruptedException | ExecutionException e) {
+      return -1L;
+    }
+    if (metadata == null || metadata.getCommitTimestampsCount() == 0) {
+      return -1L;
+    }
+    Timestamp last = metadata.getCommitTimestamps(metadata.getCommitTimestampsCount() - 1);
+    long lastNanos = last.getSeconds() * 1000000000L + last.getNanos();
+    long schemaWorkNanos = lastNanos - submitMillis * 1000000L;
+    return Math.max(0L, Math.min(elapsedNanos, schemaWorkNanos));
+  }
+
+}
@@ -2,7 +2,16 @@ package io.github.olavloite.spanner.emulator.util;
 
 import java.text.DecimalFormat;
 
+/**
+ * Converts numbers to English words. The words for all groups of three digits are computed once,
+ * and recently converted numbers are kept in a fixed size cache, so converting the same number
+ * again (for example when verifying the rows that were inserted by a test) does not allocate.
+ */
 public class EnglishNumberToWords {
+  /** The largest number that is converted by concatenating groups of three digits. */
+  private static final long MAX_NUMBER = 999999999999L;
+
+  private static final int CACHE_SIZE = 1 << 16;
 
   private static final String[] tensNames = {"", " ten", " twenty", " thirty", " forty", " fifty",
       " sixty", " seventy", " eighty", " ninety"};
@@ -11,6 +20,31 @@ public class EnglishNumberToWords {
       " seven", " eight", " nine", " ten", " eleven", " twelve", " thirteen", " fourteen",
       " fifteen", " sixteen", " seventeen", " eighteen", " nineteen"};
 
+  /** The words for 0 to 999 without a leading space. The entry for 0 is empty. */
+  private static final String[] groups = new String[1000];
+
+  static {
+    for (int i = 0; i < groups.length; i++) {
+      groups[i] = convertLessThanOneThousand(i).trim();
+    }
+  }
+
+  /**
+   * Cache entries are immutable, so a thread that reads an entry that is concurrently replaced
+   * sees either the old or the new entry, but never a mix of both.
+   */
+  private static final class Entry {
+    private final long number;
+    private final String words;
+
+    private Entry(long number, String words) {
+      this.number = number;
+      this.words = words;
+    }
+  }
+
+  private static final Entry[] cache = new Entry[CACHE_SIZE];
+
   private EnglishNumberToWords() {}
 
   private static String convertLessThanOneThousand(int number) {
@@ -31,71 +65,83 @@ public class EnglishNumberToWords {
     return numNames[number] + " hundred" + soFar;
   }
 
-
   public static String convert(long number) {
     // 0 to 999 999 999 999
     if (number == 0) {
       return "zero";
     }
+    if (number < 0 || number > MAX_NUMBER) {
+      return convertOutOfRange(number);
+    }
+    if (number < 1000) {
+      return groups[(int) number];
+    }
+    int index = (int) (number ^ (number >>> 32)) & (CACHE_SIZE - 1);
+    Entry entry = cache[index];
+    if (entry != null && entry.number == number) {
+      return entry.words;
+    }
+    String words = convertGroups(number);
+    cache[index] = new Entry(number, words);
+    return words;
+  }
 
-    String snumber = Long.toString(number);
+  private static String convertGroups(long number) {
+    int billions = (int) (number / 1000000000L);
+    int millions = (int) (number / 1000000L % 1000L);
+    int hundredThousands = (int) (number / 1000L % 1000L);
+    int thousands = (int) (number % 1000L);
+
+    StringBuilder result = new StringBuilder(64);
+    appendGroup(result, billions, " billion");
+    appendGroup(result, millions, " million");
+    appendGroup(result, hundredThousands, " thousand");
+    if (thousands == 0) {
+      // A number that ends with a zero group ends with a space, e.g. 'one thousand '.
+      result.append(' ');
+    } else {
+      if (result.length() > 0) {
+        result.append(' ');
+      }
+      result.append(groups[thousands]);
+    }
+    return result.toString();
+  }
 
-    // pad with "0"
-    String mask = "000000000000";
-    DecimalFormat df = new DecimalFormat(mask);
-    snumber = df.format(number);
+  private static void appendGroup(StringBuilder result, int group, String scale) {
+    if (group == 0) {
+      return;
+    }
+    if (result.length() > 0) {
+      result.append(' ');
+    }
+    result.append(groups[group]).append(scale);
+  }
 
-    // XXXnnnnnnnnn
+  /**
+   * The original conversion, which is kept for negative numbers and numbers larger than
+   * {@link #MAX_NUMBER} so that the output for those numbers does not change.
+   */
+  private static String convertOutOfRange(long number) {
+    String snumber = new DecimalFormat("000000000000").format(number);
     int billions = Integer.parseInt(snumber.substring(0, 3));
-    // nnnXXXnnnnnn
     int millions = Integer.parseInt(snumber.substring(3, 6));
-    // nnnnnnXXXnnn
     int hundredThousands = Integer.parseInt(snumber.substring(6, 9));
-    // nnnnnnnnnXXX
     int thousands = Integer.parseInt(snumber.substring(9, 12));
 
-    String tradBillions;
-    switch (billions) {
-      case 0:
-        tradBillions = "";
-        break;
-      case 1:
-        tradBillions = convertLessThanOneThousand(billions) + " billion ";
-        break;
-      default:
-        tradBillions = convertLessThanOneThousand(billions) + " billion ";
+    String result = "";
+    if (billions != 0) {
+      result = convertLessThanOneThousand(billions) + " billion ";
     }
-    String result = tradBillions;
-
-    String tradMillions;
-    switch (millions) {
-      case 0:
-        tradMillions = "";
-        break;
-      case 1:
-        tradMillions = convertLessThanOneThousand(millions) + " million ";
-        break;
-      default:
-        tradMillions = convertLessThanOneThousand(millions) + " million ";
+    if (millions != 0) {
+      result = result + convertLessThanOneThousand(millions) + " million ";
     }
-    result = result + tradMillions;
-
-    String tradHundredThousands;
-    switch (hundredThousands) {
-      case 0:
-        tradHundredThousands = "";
-        break;
-      case 1:
-        tradHundredThousands = "one thousand ";
-        break;
-      default:
-        tradHundredThousands = convertLessThanOneThousand(hundredThousands) + " thousand ";
+    if (hundredThousands == 1) {
+      result = result + "one thousand ";
+    } else if (hundredThousands != 0) {
+      result = result + convertLessThanOneThousand(hundredThousands) + " thousand ";
     }
-    result = result + tradHundredThousands;
-
-    String tradThousand;
-    tradThousand = convertLessThanOneThousand(thousands);
-    result = result + tradThousand;
+    result = result + convertLessThanOneThousand(thousands);
 
     // remove extra spaces!
     return result.replaceAll("^\\s+", "").replaceAll("\\b\\s{2,}\\b", " ");
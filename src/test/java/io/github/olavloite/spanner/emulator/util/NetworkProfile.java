@@ -0,0 +1,169 @@
+package io.github.olavloite.spanner.emulator.util;
+
+import java.util.Random;
+
+/**
+ * The network conditions that a {@link ShapingProxy} simulates between the client and the
+ * backend. The profile is set with <code>-Dnetwork.profile</code>, either as the name of one of
+ * the predefined profiles (<code>lan</code>, <code>region</code>, <code>wan</code> and
+ * <code>lossy</code>) or as a comma separated list of settings, for example
+ * <code>-Dnetwork.profile=latency=20,jitter=5,bandwidth=1250000,stall=0.001,stallMillis=200</code>:
+ * <ul>
+ * <li><code>latency</code>: fixed delay in milliseconds in each direction, so the round trip time
+ * is twice this value</li>
+ * <li><code>jitter</code>: random extra delay between 0 and this number of milliseconds</li>
+ * <li><code>bandwidth</code>: maximum number of bytes per second in each direction, 0 for no
+ * limit</li>
+ * <li><code>stall</code>: probability that a segment is held back for <code>stallMillis</code>
+ * milliseconds, which simulates a retransmission</li>
+ * <li><code>seed</code>: seed of the random generators, so that runs with the same profile get
+ * the same delays</li>
+ * </ul>
+ */
+public final class NetworkProfile {
+  public static final NetworkProfile LAN = new NetworkProfile("lan", 1, 0, 0L, 0D, 0, 0L);
+  public static final NetworkProfile REGION = new NetworkProfile("region", 5, 2, 0L, 0D, 0, 0L);
+  public static final NetworkProfile WAN =
+      new NetworkProfile("wan", 40, 10, 12500000L, 0D, 0, 0L);
+  public static final NetworkProfile LOSSY =
+      new NetworkProfile("lossy", 40, 20, 1250000L, 0.01D, 200, 0L);
+
+  private final String name;
+  private final int latencyMillis;
+  private final int jitterMillis;
+  private final long bytesPerSecond;
+  private final double stallProbability;
+  private final int stallMillis;
+  private final long seed;
+
+  private NetworkProfile(String name, int latencyMillis, int jitterMillis, long bytesPerSecond,
+      double stallProbability, int stallMillis, long seed) {
+    this.name = name;
+    this.latencyMillis = latencyMillis;
+    this.jitterMillis = jitterMillis;
+    this.bytesPerSecond = bytesPerSecond;
+    this.stallProbability = stallProbability;
+    this.stallMillis = stallMillis;
+    this.seed = seed;
+  }
+
+  /**
+   * @return the profile that is set with <code>-Dnetwork.profile</code>, or <code>null</code> if
+   *         no profile is set
+   */
+  public static NetworkProfile fromSystemProperties() {
+    String profile = System.getProperty("network.profile");
+    if (profile == null || profile.isEmpty() || "none".equalsIgnoreCase(profile)) {
+      return null;
+    }
+    return parse(profile);
+  }
+
+  public static NetworkProfile parse(String profile) {
+    switch (profile.toLowerCase()) {
+      case "lan":
+        return LAN;
+      case "region":
+        return REGION;
+      case "wan":
+        return WAN;
+      case "lossy":
+        return LOSSY;
+      default:
+        break;
+    }
+    int latencyMillis = 0;
+    int jitterMillis = 0;
+    long bytesPerSecond = 0L;
+    double stallProbability = 0D;
+    int stallMillis = 0;
+    long seed = 0L;
+    for (String setting : profile.split(",")) {
+      String[] keyValue = setting.split("=", 2);
+      if (keyValue.length != 2) {
+        throw new IllegalArgumentException("Invalid network profile setting: " + setting);
+      }
+      String value = keyValue[1].trim();
+      switch (keyValue[0].trim()) {
+        case "latency":
+          latencyMillis = Integer.parseInt(value);
+          break;
+        case "jitter":
+          jitterMillis = Integer.parseInt(value);
+          break;
+        case "bandwidth":
+          bytesPerSecond = Long.parseLong(value);
+          break;
+        case "stall":
+          stallProbability = Double.parseDouble(value);
+          break;
+        case "stallMillis":
+          stallMillis = Integer.parseInt(value);
+          break;
+        case "seed":
+          seed = Long.parseLong(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown network profile setting: " + setting);
+      }
+    }
+    return new NetworkProfile(profile, latencyMillis, jitterMillis, bytesPerSecond,
+        stallProbability, stallMillis, seed);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public int getJitterMillis() {
+    return jitterMillis;
+  }
+
+  public long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public double getStallProbability() {
+    return stallProbability;
+  }
+
+  public int getStallMillis() {
+    return stallMillis;
+  }
+
+  /**
+   * @return a random generator for one direction of one connection. The generator only depends on
+   *         the seed of the profile and the given stream number.
+   */
+  Random newRandom(long stream) {
+    return new Random(seed * 31L + stream);
+  }
+
+  /** @return the delay in nanoseconds of the next segment */
+  long nextDelayNanos(Random random) {
+    long millis = latencyMillis;
+    if (jitterMillis > 0) {
+      millis += random.nextInt(jitterMillis + 1);
+    }
+    if (stallProbability > 0D && random.nextDouble() < stallProbability) {
+      millis += stallMillis;
+    }
+    return millis * 1000000L;
+  }
+
+  /** @return the time in nanoseconds that it takes to send the given number of bytes */
+  long transmissionNanos(int bytes) {
+    return bytesPerSecond == 0L ? 0L : bytes * 1000000000L / bytesPerSecond;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (latency %d ms, jitter %d ms, bandwidth %d B/s, stall %.4f x %d ms)",
+        name, latencyMillis, jitterMillis, bytesPerSecond, stallProbability, stallMillis);
+  }
+
+}
@@ -0,0 +1,141 @@
+package io.github.olavloite.spanner.emulator.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import com.google.cloud.spanner.BatchClient;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.BatchTransactionId;
+import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.StructReader;
+
+/**
+ * Executes the partitions of a {@link BatchReadOnlyTransaction} in parallel. Each partition is
+ * serialized and deserialized before it is executed, in the same way as it would be when it is
+ * sent to another worker. When the executor is created with <code>reopenTransaction</code>, each
+ * partition is executed on a transaction that is reopened from the {@link BatchTransactionId},
+ * instead of on the transaction that created the partitions.
+ */
+public class PartitionExecutor {
+  private static final Log log = LogFactory.getLog(PartitionExecutor.class);
+
+  public static final class Result {
+    private final long rows;
+    private final int partitions;
+    private final long elapsedNanos;
+
+    private Result(long rows, int partitions, long elapsedNanos) {
+      this.rows = rows;
+      this.partitions = partitions;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public int getPartitions() {
+      return partitions;
+    }
+
+    public double getRowsPerSecond() {
+      return elapsedNanos == 0L ? 0D : rows * 1000000000D / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d rows from %d partitions in %d ms (%.0f rows/s)", rows, partitions,
+          elapsedNanos / 1000000L, getRowsPerSecond());
+    }
+  }
+
+  private final BatchClient client;
+  private final int parallelism;
+  private final boolean reopenTransaction;
+
+  public PartitionExecutor(BatchClient client, int parallelism, boolean reopenTransaction) {
+    this.client = client;
+    this.parallelism = parallelism;
+    this.reopenTransaction = reopenTransaction;
+  }
+
+  /**
+   * Executes all partitions and calls the sink for each row. The sink is called concurrently from
+   * multiple threads and must therefore be thread safe.
+   */
+  public Result execute(BatchReadOnlyTransaction transaction, List<Partition> partitions,
+      Consumer<StructReader> sink) {
+    long startTime = System.nanoTime();
+    BatchTransactionId transactionId = transaction.getBatchTransactionId();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    List<Future<Long>> futures = new ArrayList<>(partitions.size());
+    try {
+      for (Partition partition : partitions) {
+        byte[] serialized = serialize(partition);
+        futures.add(executor.submit(() -> {
+          // A reopened transaction must not be closed, as closing a batch transaction deletes the
+          // session that it shares with the original transaction.
+          BatchReadOnlyTransaction worker = reopenTransaction
+              ? client.batchReadOnlyTransaction(transactionId) : transaction;
+          return execute(worker, deserialize(serialized), sink);
+        }));
+      }
+      long rows = 0L;
+      for (Future<Long> future : futures) {
+        rows += future.get();
+      }
+      Result result = new Result(rows, partitions.size(), System.nanoTime() - startTime);
+      log.debug(result);
+      return result;
+    } catch (InterruptedException | ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      throw SpannerExceptionFactory.newSpannerException(e);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static long execute(BatchReadOnlyTransaction transaction, Partition partition,
+      Consumer<StructReader> sink) {
+    long rows = 0L;
+    try (ResultSet rs = transaction.execute(partition)) {
+      while (rs.next()) {
+        sink.accept(rs);
+        rows++;
+      }
+    }
+    return rows;
+  }
+
+  private static byte[] serialize(Partition partition) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(partition);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not serialize partition", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Partition deserialize(byte[] serialized) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+      return (Partition) in.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Could not deserialize partition", e);
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+package io.github.olavloite.spanner.emulator.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SessionPoolOptions;
+import com.google.cloud.spanner.Statement;
+
+/**
+ * Session pool configuration of the test harness. The pool is configured with the system
+ * properties <code>sessions.min</code>, <code>sessions.max</code> and
+ * <code>sessions.writeFraction</code>; properties that are not set keep the default of the client
+ * library. With <code>-Dsessions.warmup=true</code> the pool of each test database is filled with
+ * the minimum number of sessions before the test class starts, instead of creating the sessions
+ * while the first queries of the test are waiting.
+ */
+public class SessionPools {
+  private static final Log log = LogFactory.getLog(SessionPools.class);
+
+  private static final Statement WARM_UP_QUERY = Statement.of("select 1");
+
+  private SessionPools() {}
+
+  public static SessionPoolOptions createOptions() {
+    SessionPoolOptions.Builder builder = SessionPoolOptions.newBuilder();
+    Integer min = Integer.getInteger("sessions.min");
+    if (min != null) {
+      builder.setMinSessions(min);
+    }
+    Integer max = Integer.getInteger("sessions.max");
+    if (max != null) {
+      builder.setMaxSessions(max);
+    }
+    String writeFraction = System.getProperty("sessions.writeFraction");
+    if (writeFraction != null) {
+      builder.setWriteSessionsFraction(Float.parseFloat(writeFraction));
+    }
+    return builder.build();
+  }
+
+  public static SessionPoolOptions createOptions(int minSessions, int maxSessions,
+      float writeSessionsFraction) {
+    return SessionPoolOptions.newBuilder().setMinSessions(minSessions).setMaxSessions(maxSessions)
+        .setWriteSessionsFraction(writeSessionsFraction).build();
+  }
+
+  public static boolean isWarmUpEnabled() {
+    return Boolean.getBoolean("sessions.warmup");
+  }
+
+  /**
+   * Makes sure that the session pool of the client contains at least the given number of sessions
+   * by checking out that many sessions at the same time. Each session is checked out by a
+   * single-use query that is kept open until all sessions have been checked out.
+   *
+   * @return the time in nanoseconds that the warm-up took
+   */
+  public static long warmUp(DatabaseClient client, int sessions) {
+    long startTime = System.nanoTime();
+    List<ResultSet> open = new ArrayList<>(sessions);
+    try {
+      for (int i = 0; i < sessions; i++) {
+        ResultSet rs = client.singleUse().executeQuery(WARM_UP_QUERY);
+        open.add(rs);
+        rs.next();
+      }
+    } finally {
+      open.forEach(ResultSet::close);
+    }
+    long elapsed = System.nanoTime() - startTime;
+    log.debug(String.format("Warmed up %d sessions in %d ms", sessions, elapsed / 1000000L));
+    return elapsed;
+  }
+
+}
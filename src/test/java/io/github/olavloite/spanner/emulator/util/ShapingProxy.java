@@ -0,0 +1,227 @@
+package io.github.olavloite.spanner.emulator.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * TCP proxy on the loopback interface that forwards all connections to a backend and shapes the
+ * traffic according to a {@link NetworkProfile}. The proxy works on the byte stream, so it can be
+ * used for both TLS and plain text gRPC. The data in each direction is forwarded in segments of at
+ * most {@link #SEGMENT_SIZE} bytes. Each segment is delayed by the latency, jitter and stalls of
+ * the profile, and the segments are sent no faster than the bandwidth of the profile. Segments are
+ * never reordered, so a stall also delays the segments after it, as on a real TCP connection. All
+ * connections of the proxy share one {@link Link} in each direction, so the bandwidth limit applies
+ * to the total traffic of the client, however many channels it opens.
+ */
+public class ShapingProxy implements AutoCloseable {
+  private static final Log log = LogFactory.getLog(ShapingProxy.class);
+
+  /** The maximum segment size of a TCP connection over Ethernet. */
+  static final int SEGMENT_SIZE = 1460;
+
+  private static final class Segment {
+    private static final Segment END = new Segment(null, 0L);
+
+    private final byte[] data;
+    private final long deliverAt;
+
+    private Segment(byte[] data, long deliverAt) {
+      this.data = data;
+      this.deliverAt = deliverAt;
+    }
+  }
+
+  /**
+   * One direction of the network between the client and the backend. A segment that is due can
+   * only be sent when the link has finished transmitting the segments before it.
+   */
+  private static final class Link {
+    private long freeAt = System.nanoTime();
+
+    /** @return the time at which the link has transmitted a segment that is due now */
+    private synchronized long reserve(long transmissionNanos) {
+      freeAt = Math.max(freeAt, System.nanoTime()) + transmissionNanos;
+      return freeAt;
+    }
+  }
+
+  private final String host;
+  private final int port;
+  private final NetworkProfile profile;
+  private final ServerSocket serverSocket;
+  private final AtomicInteger connections = new AtomicInteger();
+  private final Link upLink = new Link();
+  private final Link downLink = new Link();
+  private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+  /** Starts a proxy on a free port that forwards to the given host and port. */
+  public static ShapingProxy start(String host, int port, NetworkProfile profile) {
+    try {
+      return new ShapingProxy(host, port, profile);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not start shaping proxy for " + host + ":" + port, e);
+    }
+  }
+
+  private ShapingProxy(String host, int port, NetworkProfile profile) throws IOException {
+    this.host = host;
+    this.port = port;
+    this.profile = profile;
+    this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    startThread("shaping-proxy-accept", this::accept);
+    log.info(String.format("Started shaping proxy on port %d for %s:%d with network profile %s",
+        getPort(), host, port, profile));
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public NetworkProfile getProfile() {
+    return profile;
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      Socket client;
+      try {
+        client = serverSocket.accept();
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          log.warn("Shaping proxy on port " + getPort() + " could not accept a connection", e);
+        }
+        continue;
+      }
+      try {
+        connect(client);
+      } catch (IOException e) {
+        log.warn("Could not open proxied connection to " + host + ":" + port, e);
+        closeQuietly(client);
+      }
+    }
+  }
+
+  private void connect(Socket client) throws IOException {
+    Socket backend = new Socket(host, port);
+    sockets.add(client);
+    sockets.add(backend);
+    client.setTcpNoDelay(true);
+    backend.setTcpNoDelay(true);
+    int connection = connections.getAndIncrement();
+    AtomicInteger openDirections = new AtomicInteger(2);
+    Runnable done = () -> {
+      if (openDirections.decrementAndGet() == 0) {
+        closeQuietly(client);
+        closeQuietly(backend);
+        sockets.remove(client);
+        sockets.remove(backend);
+      }
+    };
+    forward(connection, "up", client, backend, upLink, profile.newRandom(2L * connection), done);
+    forward(connection, "down", backend, client, downLink,
+        profile.newRandom(2L * connection + 1L), done);
+  }
+
+  /**
+   * Forwards one direction of a connection with two threads: one that reads segments from the
+   * source and stamps them with their delivery time, and one that writes them to the destination
+   * when they are due and the link has transmitted them. The given callback is called when the
+   * direction is closed.
+   */
+  private void forward(int connection, String direction, Socket source, Socket destination,
+      Link link, Random random, Runnable done) {
+    BlockingQueue<Segment> queue = new LinkedBlockingQueue<>();
+    String name = "shaping-proxy-" + connection + "-" + direction;
+    startThread(name + "-read", () -> {
+      long lastDeliverAt = System.nanoTime();
+      byte[] buffer = new byte[SEGMENT_SIZE];
+      try {
+        InputStream in = source.getInputStream();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          long deliverAt = System.nanoTime() + profile.nextDelayNanos(random);
+          lastDeliverAt = Math.max(lastDeliverAt, deliverAt);
+          queue.add(new Segment(Arrays.copyOf(buffer, read), lastDeliverAt));
+        }
+      } catch (IOException e) {
+        log.debug(name + " stopped reading: " + e.getMessage());
+      } finally {
+        queue.add(Segment.END);
+      }
+    });
+    startThread(name + "-write", () -> {
+      try {
+        OutputStream out = destination.getOutputStream();
+        Segment segment;
+        while ((segment = queue.take()) != Segment.END) {
+          sleepUntil(segment.deliverAt);
+          sleepUntil(link.reserve(profile.transmissionNanos(segment.data.length)));
+          out.write(segment.data);
+          out.flush();
+        }
+        destination.shutdownOutput();
+      } catch (SocketException e) {
+        log.debug(name + " stopped writing: " + e.getMessage());
+        closeQuietly(source);
+        closeQuietly(destination);
+      } catch (IOException e) {
+        log.warn(name + " failed", e);
+        closeQuietly(source);
+        closeQuietly(destination);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        done.run();
+      }
+    });
+  }
+
+  private static void sleepUntil(long nanoTime) throws InterruptedException {
+    long remaining;
+    while ((remaining = nanoTime - System.nanoTime()) > 0L) {
+      TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  private static void startThread(String name, Runnable runnable) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** Stops accepting connections and closes all open connections. */
+  @Override
+  public void close() {
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      log.warn("Could not close shaping proxy on port " + getPort(), e);
+    }
+    sockets.forEach(ShapingProxy::closeQuietly);
+    sockets.clear();
+  }
+
+}
@@ -0,0 +1,43 @@
+package io.github.olavloite.spanner.emulator.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors for concurrent tests. With <code>-DvirtualThreads=true</code> (set by the
+ * <code>virtual-threads</code> profile, which requires Java 21) each task runs on its own virtual
+ * thread instead of on a fixed pool of platform threads. The virtual thread executor is created
+ * reflectively, so the tests can still be compiled for Java 8.
+ */
+public class TestExecutors {
+
+  private TestExecutors() {}
+
+  public static boolean isUsingVirtualThreads() {
+    return Boolean.getBoolean("virtualThreads");
+  }
+
+  /**
+   * @return the number of concurrent workers that concurrent tests should use
+   *         (<code>-Dconcurrent.threads</code>, default 10)
+   */
+  public static int getConcurrency() {
+    return Integer.getInteger("concurrent.threads", 10);
+  }
+
+  public static ExecutorService newExecutor(int threads) {
+    if (isUsingVirtualThreads()) {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalStateException("Virtual threads require Java 21 or higher", e);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        throw new IllegalStateException("Could not create a virtual thread executor", e);
+      }
+    }
+    return Executors.newFixedThreadPool(threads);
+  }
+
+}